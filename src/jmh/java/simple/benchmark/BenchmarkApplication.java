@@ -0,0 +1,93 @@
+package simple.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import simple.Application;
+import simple.dto.BulkItemResult;
+import simple.dto.CommentBulkItem;
+import simple.dto.IssueBulkItem;
+import simple.entity.Employee;
+import simple.service.CommentService;
+import simple.service.EmployeeService;
+import simple.service.IssueService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static simple.service.ServiceUtils.MAX_BULK_SIZE;
+
+/**
+ * Starts the application on its own in-memory database, without a web server unless asked for one.
+ */
+final class BenchmarkApplication {
+
+    static final int ISSUES_PER_EMPLOYEE = 10;
+    static final int COMMENTS_PER_ISSUE = 2;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID(),
+                "logging.level.root=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(Application.class)
+                .web(webApplicationType)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+
+    /**
+     * Creates {@code issues} issues spread over employees, with comments, through the bulk endpoints.
+     * Returns the id of the first issue.
+     */
+    @SuppressWarnings("unchecked")
+    static long seed(ConfigurableApplicationContext context, int issues) {
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+        IssueService issueService = context.getBean(IssueService.class);
+        CommentService commentService = context.getBean(CommentService.class);
+
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, issues / ISSUES_PER_EMPLOYEE); i++) {
+            employees.add(Employee.builder().name("Ivan").lastName("Ivanov " + i).build());
+        }
+        List<Long> employeeIds = createdIds((List<BulkItemResult>) employeeService.createEmployees(employees).getBody());
+
+        List<IssueBulkItem> issueItems = new ArrayList<>();
+        for (int i = 0; i < issues; i++) {
+            issueItems.add(new IssueBulkItem(employeeIds.get(i % employeeIds.size()),
+                    "Issue title " + i, "Description of issue number " + i));
+        }
+        List<Long> issueIds = new ArrayList<>();
+        for (int from = 0; from < issueItems.size(); from += MAX_BULK_SIZE) {
+            List<IssueBulkItem> chunk = issueItems.subList(from, Math.min(issueItems.size(), from + MAX_BULK_SIZE));
+            issueIds.addAll(createdIds((List<BulkItemResult>) issueService.createIssues(chunk).getBody()));
+        }
+
+        List<CommentBulkItem> commentItems = new ArrayList<>();
+        for (Long issueId : issueIds) {
+            for (int i = 0; i < COMMENTS_PER_ISSUE; i++) {
+                commentItems.add(new CommentBulkItem(issueId, "Comment " + i, 0));
+            }
+        }
+        for (int from = 0; from < commentItems.size(); from += MAX_BULK_SIZE) {
+            commentService.createComments(commentItems.subList(from, Math.min(commentItems.size(), from + MAX_BULK_SIZE)));
+        }
+        return issueIds.get(0);
+    }
+
+    private static List<Long> createdIds(List<BulkItemResult> results) {
+        List<Long> ids = new ArrayList<>(results.size());
+        for (BulkItemResult result : results) {
+            ids.add(result.getId());
+        }
+        return ids;
+    }
+}
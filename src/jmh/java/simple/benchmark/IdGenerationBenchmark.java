@@ -0,0 +1,70 @@
+package simple.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import simple.entity.Employee;
+import simple.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of single and bulk employee creation for different id block sizes.
+ * A block size of 1 costs one sequence round trip per row, as before pooled ids were introduced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    @Param({"1", "50"})
+    public int blockSize;
+
+    @Param({"pooled", "allocator"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.jpa.properties.app.id.block-size=" + blockSize,
+                "spring.jpa.properties.app.id.mode=" + mode,
+                "app.search.index.enabled=false");
+        employeeService = context.getBean(EmployeeService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object createSingle() {
+        return employeeService.createEmployee(newEmployee());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public Object createBulk() {
+        List<Employee> employees = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            employees.add(newEmployee());
+        }
+        return employeeService.createEmployees(employees);
+    }
+
+    private static Employee newEmployee() {
+        return Employee.builder()
+                .name("Ivan")
+                .lastName("Ivanov")
+                .build();
+    }
+}
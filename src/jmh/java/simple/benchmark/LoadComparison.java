@@ -0,0 +1,140 @@
+package simple.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares thread-per-request with virtual threads ({@code app.threads.virtual}) at a fixed number of
+ * concurrent connections. Every run starts the application on a random port, keeps that many keyset
+ * page requests in flight, each of which reads from the database, and prints throughput and latency.
+ * <p>
+ * Arguments are the connection counts, 1000 and 10000 by default. The virtual thread runs need a
+ * Java 21 runtime, and client and server sockets share this process, so 10000 connections need a
+ * file descriptor limit above 20000.
+ */
+public final class LoadComparison {
+
+    private static final int ISSUES = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final Duration WARM_UP = Duration.ofSeconds(10);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(30);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private LoadComparison() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] connectionCounts = args.length == 0
+                ? new int[]{1000, 10_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-10s %11s %12s %9s %9s %9s %8s%n",
+                "threads", "connections", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (int connections : connectionCounts) {
+            for (boolean virtual : new boolean[]{false, true}) {
+                run(virtual, connections);
+            }
+        }
+    }
+
+    private static void run(boolean virtual, int connections) throws InterruptedException {
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "server.port=0",
+                "server.tomcat.max-connections=" + (connections + 1000),
+                "server.tomcat.accept-count=" + connections,
+                "app.threads.virtual=" + virtual)) {
+            BenchmarkApplication.seed(context, ISSUES);
+
+            Environment environment = context.getEnvironment();
+            String url = "http://localhost:" + environment.getProperty("local.server.port") + "/api/issue/list";
+            String headerName = environment.getProperty("app.http.auth-token-header-name");
+            String apiKey = environment.getProperty("app.http.auth-token");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(REQUEST_TIMEOUT)
+                    .build();
+            Load load = new Load(client, url, headerName, apiKey, connections);
+
+            load.drive(WARM_UP);
+            Histogram latency = load.drive(MEASUREMENT);
+
+            System.out.printf("%-10s %11d %12.0f %9.1f %9.1f %9.1f %8d%n",
+                    virtual ? "virtual" : "platform",
+                    connections,
+                    latency.getTotalCount() / (double) MEASUREMENT.toSeconds(),
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getMaxValue() / 1000.0,
+                    load.errors.sumThenReset());
+        }
+    }
+
+    private static final class Load {
+
+        private final HttpClient client;
+        private final String url;
+        private final String headerName;
+        private final String apiKey;
+        private final int connections;
+        private final Recorder recorder = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+
+        private Load(HttpClient client, String url, String headerName, String apiKey, int connections) {
+            this.client = client;
+            this.url = url;
+            this.headerName = headerName;
+            this.apiKey = apiKey;
+            this.connections = connections;
+        }
+
+        /**
+         * Keeps {@code connections} requests in flight for {@code duration}, then waits for the last ones.
+         */
+        private Histogram drive(Duration duration) throws InterruptedException {
+            recorder.reset();
+            errors.reset();
+            Semaphore inFlight = new Semaphore(connections);
+            long end = System.nanoTime() + duration.toNanos();
+            while (System.nanoTime() < end) {
+                if (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                client.sendAsync(nextRequest(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            if (failure != null || response.statusCode() != 200) {
+                                errors.increment();
+                            } else {
+                                recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                            }
+                            inFlight.release();
+                        });
+            }
+            inFlight.acquire(connections);
+            return recorder.getIntervalHistogram();
+        }
+
+        private HttpRequest nextRequest() {
+            int after = ThreadLocalRandom.current().nextInt(ISSUES);
+            return HttpRequest.newBuilder(URI.create(url + "?after=" + after + "&limit=" + PAGE_SIZE))
+                    .header(headerName, apiKey)
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+        }
+    }
+}
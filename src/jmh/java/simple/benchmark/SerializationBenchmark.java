@@ -0,0 +1,67 @@
+package simple.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static simple.benchmark.BenchmarkApplication.COMMENTS_PER_ISSUE;
+import static simple.benchmark.BenchmarkApplication.ISSUES_PER_EMPLOYEE;
+
+/**
+ * Jackson serialization of employee and issue graphs as returned by the list endpoints,
+ * with the object mapper configured the way Spring MVC configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int issues;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Employee> employeeList;
+    private List<Issue> issueList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        employeeList = new ArrayList<>();
+        issueList = new ArrayList<>();
+        long commentId = 1;
+        for (int e = 0; e < Math.max(1, issues / ISSUES_PER_EMPLOYEE); e++) {
+            employeeList.add(Employee.builder().id((long) e + 1).name("Ivan").lastName("Ivanov " + e).build());
+        }
+        for (int i = 0; i < issues; i++) {
+            Issue issue = Issue.builder()
+                    .id((long) i + 1)
+                    .title("Issue title " + i)
+                    .description("Description of issue number " + i)
+                    .build();
+            for (int c = 0; c < COMMENTS_PER_ISSUE; c++) {
+                issue.addComment(Comment.builder().id(commentId++).text("Comment " + c).build());
+            }
+            employeeList.get(i % employeeList.size()).addIssue(issue);
+            issueList.add(issue);
+        }
+    }
+
+    @Benchmark
+    public byte[] employeeList() throws Exception {
+        return objectMapper.writeValueAsBytes(employeeList);
+    }
+
+    @Benchmark
+    public byte[] issueList() throws Exception {
+        return objectMapper.writeValueAsBytes(issueList);
+    }
+}
@@ -0,0 +1,74 @@
+package simple.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import simple.entity.Comment;
+import simple.entity.Issue;
+import simple.service.CommentService;
+import simple.service.IssueService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against an application seeded with {@code issues} issues.
+ * Create benchmarks keep adding rows, so their dataset grows slightly during a run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int issues;
+
+    @Param({"true", "false"})
+    public boolean searchIndex;
+
+    private ConfigurableApplicationContext context;
+    private IssueService issueService;
+    private CommentService commentService;
+    private long employeeId;
+    private long issueId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("app.search.index.enabled=" + searchIndex);
+        issueId = BenchmarkApplication.seed(context, issues);
+        issueService = context.getBean(IssueService.class);
+        commentService = context.getBean(CommentService.class);
+        employeeId = issueService.getIssueById(issueId).getEmployee().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object search() {
+        return issueService.search("title 4");
+    }
+
+    @Benchmark
+    public Object getIssueList() {
+        return issueService.getIssueList();
+    }
+
+    @Benchmark
+    public Object createIssue() {
+        return issueService.createIssue(employeeId, Issue.builder()
+                .title("Benchmark issue")
+                .description("Created by the benchmark")
+                .build());
+    }
+
+    @Benchmark
+    public Object createComment() {
+        return commentService.createComment(issueId, Comment.builder()
+                .text("Benchmark comment")
+                .build());
+    }
+}
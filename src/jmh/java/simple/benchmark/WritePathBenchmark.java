@@ -0,0 +1,87 @@
+package simple.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import simple.dto.CommentBulkItem;
+import simple.dto.IssueBulkItem;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.service.CommentService;
+import simple.service.EmployeeService;
+import simple.service.IssueService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single creates under a parent that already has {@code children} issues or comments. Saving the
+ * child is the only write, so throughput should not depend on how many children the parent has.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WritePathBenchmark {
+
+    @Param({"0", "100", "1000"})
+    public int children;
+
+    private ConfigurableApplicationContext context;
+    private IssueService issueService;
+    private CommentService commentService;
+    private long employeeId;
+    private long issueId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("app.search.index.enabled=false");
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+        issueService = context.getBean(IssueService.class);
+        commentService = context.getBean(CommentService.class);
+
+        employeeId = ((Employee) employeeService.createEmployee(Employee.builder()
+                .name("Ivan")
+                .lastName("Ivanov")
+                .build()).getBody()).getId();
+        issueId = ((Issue) issueService.createIssue(employeeId, Issue.builder()
+                .title("Issue title")
+                .description("Description")
+                .build()).getBody()).getId();
+        if (children == 0) {
+            return;
+        }
+
+        List<IssueBulkItem> issues = new ArrayList<>(children);
+        List<CommentBulkItem> comments = new ArrayList<>(children);
+        for (int i = 0; i < children; i++) {
+            issues.add(new IssueBulkItem(employeeId, "Issue title " + i, "Description"));
+            comments.add(new CommentBulkItem(issueId, "Comment " + i, 0));
+        }
+        issueService.createIssues(issues);
+        commentService.createComments(comments);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object createIssue() {
+        return issueService.createIssue(employeeId, Issue.builder()
+                .title("Benchmark issue")
+                .description("Created by the benchmark")
+                .build());
+    }
+
+    @Benchmark
+    public Object createComment() {
+        return commentService.createComment(issueId, Comment.builder()
+                .text("Benchmark comment")
+                .build());
+    }
+}
@@ -0,0 +1,234 @@
+package simple.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of employees, issues and their child lists, bounded by size and TTL.
+ * <p>
+ * Entries are detached snapshots taken inside a transaction, so lazy collections are loaded
+ * once and never touched outside a session again. A lookup that loads returns the loaded
+ * instance itself, a cache hit returns a fresh copy of the snapshot, so callers may change
+ * what they get without affecting other readers. Write paths evict the affected keys. Only
+ * single-key lookups fill the cache, bulk lookups return copies of what they load uncached.
+ */
+@Component
+public class EntityCache {
+
+    private final Cache<Long, Employee> employees;
+    private final Cache<Long, Issue> issues;
+    private final Cache<Long, List<Issue>> employeeIssues;
+    private final Cache<Long, List<Comment>> issueComments;
+    private final TransactionOperations transactionOperations;
+
+    @Autowired
+    public EntityCache(@Value("${app.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${app.cache.ttl-seconds:60}") long ttlSeconds,
+                       TransactionOperations transactionOperations) {
+        this.employees = newCache(maximumSize, ttlSeconds);
+        this.issues = newCache(maximumSize, ttlSeconds);
+        this.employeeIssues = newCache(maximumSize, ttlSeconds);
+        this.issueComments = newCache(maximumSize, ttlSeconds);
+        this.transactionOperations = transactionOperations;
+    }
+
+    public Employee getEmployee(Long id, Function<Long, Employee> loader) {
+        return get(employees, id, loader, EntityCache::copyEmployee);
+    }
+
+    public Issue getIssue(Long id, Function<Long, Issue> loader) {
+        return get(issues, id, loader, EntityCache::copyIssue);
+    }
+
+    public List<Issue> getEmployeeIssues(Long employeeId, Function<Long, List<Issue>> loader) {
+        return get(employeeIssues, employeeId, loader, list -> copyList(list, EntityCache::copyIssue));
+    }
+
+    public List<Comment> getIssueComments(Long issueId, Function<Long, List<Comment>> loader) {
+        return get(issueComments, issueId, loader, list -> copyList(list, EntityCache::copyComment));
+    }
+
+    /**
+     * Returns the cached employees among the ids and loads the others with one call of the loader,
+     * which gets the missing ids and returns the employees it found by id. Ids found nowhere are absent,
+     * loaded employees are not cached.
+     */
+    public Map<Long, Employee> getEmployees(Collection<Long> ids, Function<List<Long>, Map<Long, Employee>> loader) {
+        return getAll(employees, ids, loader, EntityCache::copyEmployee);
+    }
+
+    public Map<Long, Issue> getIssues(Collection<Long> ids, Function<List<Long>, Map<Long, Issue>> loader) {
+        return getAll(issues, ids, loader, EntityCache::copyIssue);
+    }
+
+    public Map<Long, List<Comment>> getIssueComments(Collection<Long> issueIds,
+                                                     Function<List<Long>, Map<Long, List<Comment>>> loader) {
+        return getAll(issueComments, issueIds, loader, list -> copyList(list, EntityCache::copyComment));
+    }
+
+    /**
+     * Evicts the employee and its issue list.
+     */
+    public void evictEmployee(Long id) {
+        if (id == null) {
+            return;
+        }
+        employees.invalidate(id);
+        employeeIssues.invalidate(id);
+    }
+
+    /**
+     * Evicts the issue, its comment list and the entries of its employee, which embed the issue.
+     */
+    public void evictIssue(Issue issue) {
+        if (issue == null) {
+            return;
+        }
+        evictIssue(issue.getId(), issue.getEmployee() == null ? null : issue.getEmployee().getId());
+    }
+
+    public void evictIssue(Long issueId, Long employeeId) {
+        if (issueId == null) {
+            return;
+        }
+        issues.invalidate(issueId);
+        issueComments.invalidate(issueId);
+        evictEmployee(employeeId);
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("employee", toMap(employees));
+        stats.put("issue", toMap(issues));
+        stats.put("employeeIssues", toMap(employeeIssues));
+        stats.put("issueComments", toMap(issueComments));
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Cache<Long, T> cache, Long id, Function<Long, T> loader, UnaryOperator<T> copier) {
+        Object[] loaded = new Object[1];
+        T snapshot = cache.get(id, key -> transactionOperations.execute(status -> {
+            T value = loader.apply(key);
+            if (value == null) {
+                return null;
+            }
+            loaded[0] = value;
+            return copier.apply(value);
+        }));
+        if (loaded[0] != null) {
+            return (T) loaded[0];
+        }
+        return snapshot == null ? null : copier.apply(snapshot);
+    }
+
+    /**
+     * Copies the hits and loads the misses with one call of the loader, without caching them. Unlike the
+     * per-key load, a bulk put does not wait for an eviction of the same key, so it could store rows read
+     * before a write that has just evicted them.
+     */
+    private <T> Map<Long, T> getAll(Cache<Long, T> cache, Collection<Long> ids, Function<List<Long>, Map<Long, T>> loader,
+                                    UnaryOperator<T> copier) {
+        Map<Long, T> snapshots = cache.getAllPresent(ids);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (!snapshots.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        Map<Long, T> loaded = missing.isEmpty() ? Map.of() : transactionOperations.execute(status -> {
+            Map<Long, T> copies = new HashMap<>();
+            loader.apply(missing).forEach((id, value) -> copies.put(id, copier.apply(value)));
+            return copies;
+        });
+        Map<Long, T> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            T snapshot = snapshots.get(id);
+            T value = snapshot != null ? copier.apply(snapshot) : loaded.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maximumSize, long ttlSeconds) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    private static Map<String, Object> toMap(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", cache.estimatedSize());
+        map.put("hits", stats.hitCount());
+        map.put("misses", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictions", stats.evictionCount());
+        return map;
+    }
+
+    private static <T> List<T> copyList(List<T> list, UnaryOperator<T> copier) {
+        List<T> copy = new ArrayList<>(list.size());
+        for (T item : list) {
+            copy.add(copier.apply(item));
+        }
+        return copy;
+    }
+
+    private static Employee copyEmployee(Employee employee) {
+        Employee copy = employee.toBuilder().issues(null).build();
+        if (employee.getIssues() != null) {
+            List<Issue> copiedIssues = new ArrayList<>(employee.getIssues().size());
+            for (Issue issue : employee.getIssues()) {
+                copiedIssues.add(copyIssue(issue, copy));
+            }
+            copy.setIssues(copiedIssues);
+        }
+        return copy;
+    }
+
+    private static Issue copyIssue(Issue issue) {
+        return copyIssue(issue, shallowCopy(issue.getEmployee()));
+    }
+
+    private static Issue copyIssue(Issue issue, Employee employee) {
+        Issue copy = issue.toBuilder().employee(employee).comments(null).build();
+        if (issue.getComments() != null) {
+            List<Comment> copiedComments = new ArrayList<>(issue.getComments().size());
+            for (Comment comment : issue.getComments()) {
+                copiedComments.add(comment.toBuilder().issue(copy).build());
+            }
+            copy.setComments(copiedComments);
+        }
+        return copy;
+    }
+
+    private static Comment copyComment(Comment comment) {
+        Issue issue = comment.getIssue() == null ? null : comment.getIssue().toBuilder()
+                .employee(shallowCopy(comment.getIssue().getEmployee()))
+                .comments(null)
+                .build();
+        return comment.toBuilder().issue(issue).build();
+    }
+
+    private static Employee shallowCopy(Employee employee) {
+        return employee == null ? null : employee.toBuilder().issues(null).build();
+    }
+}
@@ -0,0 +1,156 @@
+package simple.change;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import simple.entity.Change;
+import simple.id.IdBlockAllocator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Revisioned log of inserts, updates and deletes. Changes are inserted in the transaction that
+ * makes them, so they are stored if and only if it commits, with revisions taken from the
+ * {@code change_log_seq} sequence in blocks. Transactions commit out of revision order, so readers
+ * stop at {@link #getCommittedRevision()} and never skip a revision that is still to commit.
+ * Compaction keeps only the latest change of every entity and drops tombstones after
+ * {@code app.changes.tombstone-retention-ms}, so the log is bounded by the number of live entities
+ * plus recent deletes.
+ */
+@Component
+public class ChangeLog {
+
+    private static final String INSERT_SQL = "INSERT INTO " + Change.TABLE + " (" + Change.REVISION_FIELD + ", " +
+            Change.TYPE_FIELD + ", " + Change.ENTITY_ID_FIELD + ", " + Change.DELETED_FIELD + ", " +
+            Change.CHANGED_AT_FIELD + ") VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SUPERSEDED_SQL = "DELETE FROM " + Change.TABLE + " WHERE " + Change.REVISION_FIELD +
+            " < (SELECT MAX(latest." + Change.REVISION_FIELD + ") FROM " + Change.TABLE + " latest" +
+            " WHERE latest." + Change.TYPE_FIELD + " = " + Change.TABLE + "." + Change.TYPE_FIELD +
+            " AND latest." + Change.ENTITY_ID_FIELD + " = " + Change.TABLE + "." + Change.ENTITY_ID_FIELD + ")";
+    private static final String EXPIRED_TOMBSTONES_WHERE = " WHERE " + Change.DELETED_FIELD + " = TRUE AND " +
+            Change.CHANGED_AT_FIELD + " <= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.changes.tombstone-retention-ms:86400000}")
+    private long tombstoneRetentionMs = 86_400_000;
+
+    private final IdBlockAllocator revisions = new IdBlockAllocator(Change.REVISION_BLOCK_SIZE);
+
+    // guarded by this: the highest revision handed out and those whose transaction has not completed yet
+    private long lastRevision = -1;
+    private final NavigableSet<Long> uncommitted = new TreeSet<>();
+
+    private final AtomicLong purgedRevision = new AtomicLong();
+
+    public void record(Change... changes) {
+        record(Arrays.asList(changes));
+    }
+
+    /**
+     * Inserts the changes in the current transaction, or right away without one.
+     * Changes without an entity id are skipped.
+     */
+    public void record(List<Change> changes) {
+        List<Change> recorded = changes.stream()
+                .filter(change -> change.getEntityId() != null)
+                .collect(Collectors.toList());
+        if (recorded.isEmpty()) {
+            return;
+        }
+
+        long[] allocated = allocate(recorded.size());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                insert(recorded, allocated);
+            } finally {
+                complete(allocated);
+            }
+            return;
+        }
+        // registered before the insert, so the revisions are released even if it fails and rolls the transaction back
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(allocated);
+            }
+        });
+        insert(recorded, allocated);
+    }
+
+    /**
+     * Returns the highest revision up to which every change is committed or rolled back. Changes above it
+     * may be visible already, but a lower revision may still commit after them.
+     */
+    public synchronized long getCommittedRevision() {
+        if (!uncommitted.isEmpty()) {
+            return uncommitted.first() - 1;
+        }
+        if (lastRevision < 0) {
+            // nothing was handed out since the start, so every stored change is committed
+            lastRevision = Objects.requireNonNull(jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + Change.REVISION_FIELD + "), 0) FROM " + Change.TABLE, Long.class));
+        }
+        return lastRevision;
+    }
+
+    /**
+     * Returns the highest revision of a dropped tombstone. A client that synced before it may have missed deletes.
+     */
+    public long getPurgedRevision() {
+        return purgedRevision.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.changes.compaction-interval-ms:60000}")
+    public void compact() {
+        jdbcTemplate.update(DELETE_SUPERSEDED_SQL);
+
+        long expiredBefore = System.currentTimeMillis() - tombstoneRetentionMs;
+        Long expiredRevision = jdbcTemplate.queryForObject("SELECT MAX(" + Change.REVISION_FIELD + ") FROM " +
+                Change.TABLE + EXPIRED_TOMBSTONES_WHERE, Long.class, expiredBefore);
+        if (expiredRevision != null) {
+            // raised first, so a client never misses a tombstone without being told to resync
+            purgedRevision.accumulateAndGet(expiredRevision, Math::max);
+            jdbcTemplate.update("DELETE FROM " + Change.TABLE + EXPIRED_TOMBSTONES_WHERE + " AND " +
+                    Change.REVISION_FIELD + " <= ?", expiredBefore, expiredRevision);
+        }
+    }
+
+    /**
+     * Hands out the revisions and marks them uncommitted in one step, so the committed revision never passes one
+     * that is taken but not marked yet.
+     */
+    private synchronized long[] allocate(int count) {
+        long[] allocated = new long[count];
+        for (int i = 0; i < count; i++) {
+            allocated[i] = revisions.next(() -> Objects.requireNonNull(jdbcTemplate.queryForObject(
+                    "SELECT NEXT VALUE FOR " + Change.REVISION_SEQUENCE, Long.class)));
+            uncommitted.add(allocated[i]);
+        }
+        lastRevision = Math.max(lastRevision, allocated[count - 1]);
+        return allocated;
+    }
+
+    private synchronized void complete(long[] allocated) {
+        for (long revision : allocated) {
+            uncommitted.remove(revision);
+        }
+    }
+
+    private void insert(List<Change> changes, long[] allocated) {
+        long now = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            batch.add(new Object[]{allocated[i], change.getType().name(), change.getEntityId(), change.isDeleted(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+    }
+}
@@ -0,0 +1,34 @@
+package simple.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import simple.cache.EntityCache;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @GetMapping("/stats")
+    @Operation(
+            tags = "Cache",
+            summary = "Entity cache statistics",
+            description = "Size, hits, misses, hit rate and evictions of every entity cache",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK"
+            )
+    )
+    public ResponseEntity<Map<String, Map<String, Object>>> getStats() {
+        return ResponseEntity.ok().body(entityCache.getStats());
+    }
+}
@@ -0,0 +1,48 @@
+package simple.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import simple.dto.ChangePage;
+import simple.service.ChangeService;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    @Autowired
+    private ChangeService changeService;
+
+    @GetMapping
+    @Operation(
+            tags = "Change",
+            summary = "Getting changes since a revision",
+            description = "Returns employees, issues and comments inserted or updated after the revision with their current state, " +
+                    "and tombstones of deleted ones. Pass the returned 'revision' as 'since' of the next call while 'hasMore' is true. " +
+                    "Starting from revision 0 returns every existing entity. 410 means deletes were compacted since the revision",
+            parameters = {
+                    @Parameter(name = "since", description = "Revision of the last synced change", example = "0"),
+                    @Parameter(name = "limit", description = "Page size, 1 to 1000", example = "100")
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChangePage.class))
+                    ),
+                    @ApiResponse(responseCode = "410", description = "Gone")
+            }
+    )
+    public ResponseEntity<Object> getChanges(@RequestParam(value = "since", required = false) Long since,
+                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        return changeService.getChanges(since, limit);
+    }
+}
@@ -2,16 +2,26 @@ package simple.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import simple.dto.BulkItemResult;
+import simple.dto.CommentBulkItem;
+import simple.dto.MultiGetResult;
+import simple.dto.UniqueLikers;
 import simple.entity.Comment;
 import simple.swagger.schema.request.CommentRequest;
 import simple.service.CommentService;
 
+import java.security.Principal;
 import java.util.List;
 
 @RestController
@@ -26,7 +36,8 @@ public class CommentController {
             tags = {"Comment"},
             operationId = "comment",
             summary = "Create new comment",
-            description = "Before creating a comment, you need to create a issue",
+            description = "Before creating a comment, you need to create a issue. In the group commit mode "
+                    + "the response is sent once the batch with the comment is committed, 503 if the queue is full",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
             content = @Content(schema = @Schema(implementation = CommentRequest.class))),
             responses = {
@@ -37,26 +48,227 @@ public class CommentController {
                     )
             }
     )
-    public ResponseEntity<Object> create(@RequestParam("issueId") Long id, @RequestBody Comment comment) {
+    public Object create(@RequestParam("issueId") Long id, @RequestBody Comment comment) {
+       if (commentService.isGroupCommitEnabled()) {
+           return commentService.submitComment(id, comment);
+       }
        return commentService.createComment(id, comment);
     }
 
+    @PostMapping("/create/bulk")
+    @Operation(
+            tags = {"Comment"},
+            summary = "Create several comments",
+            description = "Inserts up to 1000 comments of existing issues in one transaction. Every item gets its own status, invalid items are skipped",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = BulkItemResult.class)))
+                    )
+            }
+    )
+    public ResponseEntity<Object> createBulk(@RequestBody List<CommentBulkItem> items) {
+        return commentService.createComments(items);
+    }
+
     @GetMapping("/issue/{id}/list")
     @Operation(
             tags = {"Comment"},
             operationId = "id",
             summary = "Getting comments on a issue",
+            description = "Send the ETag back in 'If-None-Match' to get 304 while the comments and their likes are unchanged",
             parameters = {@Parameter(name = "id", example = "1")},
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "OK",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Comment.class))
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<List<Comment>> getIssueComments(@PathVariable Long id, WebRequest request) {
+        ResponseEntity<List<Comment>> comments = commentService.getIssueComments(id);
+        if (request.checkNotModified(commentService.getIssueCommentsTag(comments.getBody()))) {
+            return null;
+        }
+        return comments;
+    }
+
+    @GetMapping(value = "/issue/{id}/list", params = "fields")
+    @Operation(
+            tags = {"Comment"},
+            summary = "Getting comments on a issue with selected fields",
+            description = "Same as the plain list with only the selected fields and the id of every comment",
+            parameters = {@Parameter(name = "fields", description = "Field selection", example = "text,likes")},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK"),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<Object> getIssueComments(@PathVariable Long id, @RequestParam("fields") String fields,
+                                                   WebRequest request) {
+        if (request.checkNotModified(commentService.getIssueCommentsTag(id))) {
+            return null;
+        }
+        return commentService.getIssueComments(id, fields);
+    }
+
+    @GetMapping("/issue/batch")
+    @Operation(
+            tags = {"Comment"},
+            summary = "Getting the comments of several issues",
+            description = "Returns the comment lists keyed by issue id and lists the issue ids that were not found. " +
+                    "Cached lists are served from the cache, the others are loaded with one query per 500 ids",
+            parameters = {@Parameter(name = "ids", description = "Comma-separated issue ids, 1 to 1000", example = "1,2,3")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> getBatch(@RequestParam("ids") List<Long> ids) {
+        return commentService.getCommentsByIssueIds(ids);
+    }
+
+    @PostMapping("/issue/batch")
+    @Operation(
+            tags = {"Comment"},
+            summary = "Getting the comments of several issues from the request body",
+            description = "Same as GET with the issue ids as a JSON array, for lists too long for a URL",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> postBatch(@RequestBody List<Long> ids) {
+        return commentService.getCommentsByIssueIds(ids);
+    }
+
+    @GetMapping("/top")
+    @Operation(
+            tags = {"Comment"},
+            summary = "Getting the comments with the most likes",
+            description = "Served from an in-memory ranking without touching the database. " +
+                    "Likes are ranked once they are flushed, within 'app.likes.flush-interval-ms'",
+            parameters = {@Parameter(name = "limit", example = "10")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Comment.class)))
+                    )
+            }
+    )
+    public ResponseEntity<Object> getTop(@RequestParam(value = "limit", required = false) Integer limit) {
+        return commentService.getTopComments(limit);
+    }
+
+    @GetMapping("/issue/{id}/top")
+    @Operation(
+            tags = {"Comment"},
+            operationId = "id",
+            summary = "Getting the comments of an issue with the most likes",
+            description = "Served from an in-memory ranking without touching the database. " +
+                    "Likes are ranked once they are flushed, within 'app.likes.flush-interval-ms'",
+            parameters = {@Parameter(name = "id", example = "1"), @Parameter(name = "limit", example = "10")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Comment.class)))
                     )
             }
     )
-    public ResponseEntity<List<Comment>> getIssueComments(@PathVariable Long id) {
-        return commentService.getIssueComments(id);
+    public ResponseEntity<Object> getIssueTop(@PathVariable Long id,
+                                              @RequestParam(value = "limit", required = false) Integer limit) {
+        return commentService.getIssueTopComments(id, limit);
+    }
+
+    @GetMapping(value = "/issue/{id}/list", params = "reactive=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            tags = {"Comment"},
+            operationId = "id",
+            summary = "Publishing comments on a issue",
+            description = "Writes one comment JSON object per line. Pages of comments are read only as fast as the client consumes them",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Comment.class))
+                    )
+            }
+    )
+    public Flux<Comment> publishIssueComments(@PathVariable Long id) {
+        return commentService.publishIssueComments(id);
+    }
+
+    @PostMapping("/{id}/like")
+    @Operation(
+            tags = {"Comment"},
+            operationId = "id",
+            summary = "Like comment",
+            description = "The like is counted in memory and added to the stored likes within a second. " +
+                    "The liker is taken from the 'X-User-Id' header or else the API key and is counted once in the unique likers",
+            parameters = {
+                    @Parameter(name = "id", example = "1"),
+                    @Parameter(name = "X-User-Id", description = "Id of the user who likes the comment", example = "42")
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK"
+                    )
+            }
+    )
+    public ResponseEntity<Void> like(@PathVariable Long id,
+                                     @RequestHeader(value = "X-User-Id", required = false) String userId,
+                                     Principal principal) {
+        String liker = userId != null ? userId : principal == null ? null : principal.getName();
+        return commentService.likeComment(id, liker);
+    }
+
+    @GetMapping("/{id}/likers")
+    @Operation(
+            tags = {"Comment"},
+            operationId = "id",
+            summary = "Getting the approximate number of unique likers of a comment",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UniqueLikers.class))
+                    )
+            }
+    )
+    public ResponseEntity<UniqueLikers> getLikers(@PathVariable Long id) {
+        return commentService.getCommentLikers(id);
+    }
+
+    @PostMapping("/{id}/unlike")
+    @Operation(
+            tags = {"Comment"},
+            operationId = "id",
+            summary = "Unlike comment",
+            description = "Likes never drop below zero",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK"
+                    )
+            }
+    )
+    public ResponseEntity<Void> unlike(@PathVariable Long id) {
+        return commentService.unlikeComment(id);
     }
 
     @DeleteMapping("/{id}")
@@ -75,4 +287,21 @@ public class CommentController {
     public ResponseEntity<Void> remove(@PathVariable Long id) {
         return commentService.deleteComment(id);
     }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            tags = {"Comment"},
+            summary = "Export all comments",
+            description = "Writes one comment JSON object per line while rows are read from the database",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Comment.class))
+                    )
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> export() {
+        return commentService.exportComments();
+    }
 }
@@ -0,0 +1,53 @@
+package simple.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import simple.counter.AggregateCounters;
+import simple.dto.Reconciliation;
+
+@RestController
+@RequestMapping("/api/counters")
+public class CounterController {
+
+    @Autowired
+    private AggregateCounters aggregateCounters;
+
+    @GetMapping("/reconciliation")
+    @Operation(
+            tags = "Counters",
+            summary = "Result of the last counter reconciliation",
+            description = "Issue, comment and like counters whose stored value differed from the rows, up to " +
+                    AggregateCounters.MAX_REPORTED_DRIFTS + " of them. They were fixed by the reconciliation",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK"),
+                    @ApiResponse(responseCode = "204", description = "No reconciliation has run yet")
+            }
+    )
+    public ResponseEntity<Reconciliation> getReconciliation() {
+        Reconciliation reconciliation = aggregateCounters.getLastReconciliation();
+        if (reconciliation == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok().body(reconciliation);
+    }
+
+    @PostMapping("/reconciliation")
+    @Operation(
+            tags = "Counters",
+            summary = "Reconciling the counters now",
+            description = "Recomputes the counters from the rows and fixes any drift",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK"
+            )
+    )
+    public ResponseEntity<Reconciliation> reconcile() {
+        return ResponseEntity.ok().body(aggregateCounters.reconcile());
+    }
+}
@@ -1,12 +1,20 @@
 package simple.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import simple.dto.BulkItemResult;
+import simple.dto.EmployeeStats;
+import simple.dto.MultiGetResult;
 import simple.entity.Employee;
 import simple.service.EmployeeService;
 import simple.swagger.schema.request.EmployeeRequest;
@@ -14,6 +22,8 @@ import simple.swagger.schema.request.EmployeeRequest;
 import java.util.List;
 import java.util.Map;
 
+import static simple.service.ServiceUtils.NOT_FOUND_RESPONSE;
+
 @RestController
 @RequestMapping("api/employee")
 public class EmployeeController {
@@ -25,14 +35,136 @@ public class EmployeeController {
     @Operation(
             tags = "Employee",
             summary = "Getting employee list",
+            description = "Pass 'after' and/or 'limit' to get one page ordered by id. The 'next' field of the page is the 'after' value of the following page. " +
+                    "The ETag changes with any employee, issue or comment, send it back in 'If-None-Match' to get 304 while nothing changed",
+            parameters = {
+                    @Parameter(name = "after", description = "Id of the last employee of the previous page", example = "0"),
+                    @Parameter(name = "limit", description = "Page size, 1 to 1000", example = "100")
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Employee.class))
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<?> getList(@RequestParam(value = "after", required = false) Long after,
+                                     @RequestParam(value = "limit", required = false) Integer limit,
+                                     WebRequest request) {
+        if (request.checkNotModified(employeeService.getEmployeeListTag())) {
+            return null;
+        }
+        if (after != null || limit != null) {
+            return employeeService.getEmployeePage(after, limit);
+        }
+        return employeeService.getEmployeeList();
+    }
+
+    @GetMapping(value = "/list", params = "fields")
+    @Operation(
+            tags = "Employee",
+            summary = "Getting employee list with selected fields",
+            description = "Same as the plain list with only the selected fields and the id of every employee. " +
+                    "Only the selected columns are read, issues and comments are loaded with one query per level",
+            parameters = {
+                    @Parameter(name = "fields", description = "Nested field selection", example = "name,lastName,issues(title)"),
+                    @Parameter(name = "after", description = "Id of the last employee of the previous page", example = "0"),
+                    @Parameter(name = "limit", description = "Page size, 1 to 1000", example = "100")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK"),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<Object> getList(@RequestParam("fields") String fields,
+                                          @RequestParam(value = "after", required = false) Long after,
+                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                          WebRequest request) {
+        if (request.checkNotModified(employeeService.getEmployeeListProjectionTag())) {
+            return null;
+        }
+        if (after != null || limit != null) {
+            return employeeService.getEmployeePage(after, limit, fields);
+        }
+        return employeeService.getEmployeeList(fields);
+    }
+
+    @GetMapping(value = "/list", params = "stream=true")
+    @Operation(
+            tags = "Employee",
+            summary = "Streaming employee list",
+            description = "Writes the whole list as a JSON array while rows are read from the database",
             responses = @ApiResponse(
                     responseCode = "200",
                     description = "OK",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = Employee.class))
             )
     )
-    public ResponseEntity<List<Employee>> getList() {
-        return employeeService.getEmployeeList();
+    public ResponseEntity<StreamingResponseBody> streamList() {
+        return employeeService.streamEmployeeList();
+    }
+
+    @GetMapping("/batch")
+    @Operation(
+            tags = "Employee",
+            summary = "Getting employees by ids",
+            description = "Returns the employees with their issues keyed by id and lists the ids that were not found. " +
+                    "Cached employees are served from the cache, the others are loaded with one query per 500 ids",
+            parameters = {@Parameter(name = "ids", description = "Comma-separated ids, 1 to 1000", example = "1,2,3")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> getBatch(@RequestParam("ids") List<Long> ids) {
+        return employeeService.getEmployeesByIds(ids);
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            tags = "Employee",
+            summary = "Getting employees by ids from the request body",
+            description = "Same as GET with the ids as a JSON array, for lists too long for a URL",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> postBatch(@RequestBody List<Long> ids) {
+        return employeeService.getEmployeesByIds(ids);
+    }
+
+    @GetMapping("/graph")
+    @Operation(
+            tags = "Employee",
+            summary = "Getting employees with their issues and comments",
+            description = "Returns only the selected fields of the employees keyed by id and lists the ids that were not found. " +
+                    "Employees, their issues and the comments of those issues are loaded with one query per level. " +
+                    "A relation selected without nested fields gets all of its plain fields",
+            parameters = {
+                    @Parameter(name = "ids", description = "Comma-separated ids, 1 to 1000", example = "1,2,3"),
+                    @Parameter(name = "fields", description = "Nested field selection, by default every field",
+                            example = "name,issues(title,comments(text,likes))")
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> getGraph(@RequestParam("ids") List<Long> ids,
+                                           @RequestParam(value = "fields", required = false) String fields) {
+        return employeeService.getEmployeeGraph(ids, fields);
     }
 
     @GetMapping("/{id}")
@@ -40,14 +172,64 @@ public class EmployeeController {
             tags = "Employee",
             operationId = "id",
             summary = "Getting employee by id",
-            responses = @ApiResponse(
-                    responseCode = "200",
-                    description = "OK",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Employee.class))
-            )
+            description = "Send the ETag back in 'If-None-Match' to get 304 while the employee, its issues and their comments are unchanged",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Employee.class))
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Not Modified"),
+                    @ApiResponse(responseCode = "404", description = "Not Found")
+            }
+    )
+    public ResponseEntity<Object> getById(@PathVariable Long id, WebRequest request) {
+        if (employeeService.isMissingEmployee(id)) {
+            return NOT_FOUND_RESPONSE;
+        }
+        Employee employee = employeeService.getEmployeeById(id);
+        if (request.checkNotModified(employeeService.getEmployeeTag(employee))) {
+            return null;
+        }
+        return ResponseEntity.ok(employee);
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    @Operation(
+            tags = "Employee",
+            summary = "Getting employee by id with selected fields",
+            description = "Same as the plain lookup with only the selected fields and the id",
+            parameters = {@Parameter(name = "fields", description = "Nested field selection", example = "name,issues(title,comments(text))")},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK"),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<Object> getById(@PathVariable Long id, @RequestParam("fields") String fields, WebRequest request) {
+        if (request.checkNotModified(employeeService.getEmployeeProjectionTag(id))) {
+            return null;
+        }
+        return employeeService.getEmployeeById(id, fields);
+    }
+
+    @GetMapping("/{id}/stats")
+    @Operation(
+            tags = "Employee",
+            operationId = "id",
+            summary = "Getting the number of issues of an employee",
+            description = "Reads a counter kept up to date by the create and delete paths, without loading the issues",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = EmployeeStats.class))
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Not Found")
+            }
     )
-    public Employee getById(@PathVariable Long id) {
-        return employeeService.getEmployeeById(id);
+    public ResponseEntity<EmployeeStats> getStats(@PathVariable Long id) {
+        return employeeService.getEmployeeStats(id);
     }
 
     @PostMapping("/create")
@@ -68,6 +250,21 @@ public class EmployeeController {
         return employeeService.createEmployee(employee);
     }
 
+    @PostMapping("/create/bulk")
+    @Operation(
+            tags = "Employee",
+            summary = "Create several employees",
+            description = "Inserts up to 1000 employees in one transaction. Every item gets its own status, invalid items are skipped",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = BulkItemResult.class)))
+            )
+    )
+    public ResponseEntity<Object> createBulk(@RequestBody List<Employee> employees) {
+        return employeeService.createEmployees(employees);
+    }
+
     @PatchMapping("/edit/{id}")
     @Operation(
             tags = "Employee",
@@ -99,4 +296,19 @@ public class EmployeeController {
     public ResponseEntity<Object> delete(@PathVariable Long id) {
         return employeeService.remove(id);
     }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            tags = "Employee",
+            summary = "Export all employees",
+            description = "Writes one employee JSON object per line while rows are read from the database",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Employee.class))
+            )
+    )
+    public ResponseEntity<StreamingResponseBody> export() {
+        return employeeService.exportEmployees();
+    }
 }
@@ -2,19 +2,33 @@ package simple.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import simple.dto.BulkItemResult;
+import simple.dto.IssueBulkItem;
+import simple.dto.IssueStats;
+import simple.dto.MultiGetResult;
+import simple.dto.UniqueLikers;
 import simple.entity.Issue;
+import simple.event.IssueEvent;
 import simple.service.IssueService;
 import simple.swagger.schema.request.IssueRequest;
 
 import java.util.List;
 import java.util.Map;
 
+import static simple.service.ServiceUtils.NOT_FOUND_RESPONSE;
+
 @RestController
 @RequestMapping("api/issue")
 public class IssueController {
@@ -42,6 +56,23 @@ public class IssueController {
         return issueService.createIssue(id, issue);
     }
 
+    @PostMapping("/create/bulk")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Create several issues",
+            description = "Inserts up to 1000 issues of existing employees in one transaction. Every item gets its own status, invalid items are skipped",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = BulkItemResult.class)))
+                    )
+            }
+    )
+    public ResponseEntity<Object> createBulk(@RequestBody List<IssueBulkItem> items) {
+        return issueService.createIssues(items);
+    }
+
     @GetMapping("/employee/{id}/list")
     @Operation(
             tags = {"Issue"},
@@ -59,6 +90,20 @@ public class IssueController {
         return issueService.getEmployeeIssues(id);
     }
 
+    @GetMapping(value = "/employee/{id}/list", params = "fields")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Getting issue list by employee id with selected fields",
+            description = "Same as the plain list with only the selected fields and the id of every issue",
+            parameters = {@Parameter(name = "fields", description = "Nested field selection", example = "title,comments(text)")},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK")
+            }
+    )
+    public ResponseEntity<Object> getEmployeePosts(@PathVariable Long id, @RequestParam("fields") String fields) {
+        return issueService.getEmployeeIssues(id, fields);
+    }
+
     @GetMapping("/search")
     @Operation(
             tags = {"Issue"},
@@ -76,22 +121,177 @@ public class IssueController {
         return issueService.search(query);
     }
 
+    @GetMapping(value = "/search", params = "fields")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Getting some issue or employee by query with selected fields",
+            description = "Same as the plain search with only the selected fields and the id of every issue found",
+            parameters = {@Parameter(name = "fields", description = "Nested field selection", example = "id,title")},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK")
+            }
+    )
+    public ResponseEntity<Object> search(@RequestParam("q") String query, @RequestParam("fields") String fields) {
+        return issueService.search(query, fields);
+    }
+
+    @GetMapping("/batch")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Getting issues by ids",
+            description = "Returns the issues keyed by id and lists the ids that were not found. " +
+                    "Cached issues are served from the cache, the others are loaded with one query per 500 ids",
+            parameters = {@Parameter(name = "ids", description = "Comma-separated ids, 1 to 1000", example = "1,2,3")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> getBatch(@RequestParam("ids") List<Long> ids) {
+        return issueService.getIssuesByIds(ids);
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Getting issues by ids from the request body",
+            description = "Same as GET with the ids as a JSON array, for lists too long for a URL",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class))
+                    )
+            }
+    )
+    public ResponseEntity<Object> postBatch(@RequestBody List<Long> ids) {
+        return issueService.getIssuesByIds(ids);
+    }
+
     @GetMapping("/{id}")
     @Operation(
             tags = {"Issue"},
             operationId = "id",
             summary = "Getting issue by id",
+            description = "Send the ETag back in 'If-None-Match' to get 304 while the issue and its comments are unchanged",
             parameters = {@Parameter(name = "id", example = "1")},
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "OK",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Issue.class))
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Not Modified"),
+                    @ApiResponse(responseCode = "404", description = "Not Found")
+            }
+    )
+    public ResponseEntity<Object> getById(@PathVariable Long id, WebRequest request) {
+        if (issueService.isMissingIssue(id)) {
+            return NOT_FOUND_RESPONSE;
+        }
+        Issue issue = issueService.getIssueById(id);
+        if (request.checkNotModified(issueService.getIssueTag(issue))) {
+            return null;
+        }
+        return ResponseEntity.ok(issue);
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Getting issue by id with selected fields",
+            description = "Same as the plain lookup with only the selected fields and the id",
+            parameters = {@Parameter(name = "fields", description = "Nested field selection", example = "title,comments(text,likes)")},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK"),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<Object> getById(@PathVariable Long id, @RequestParam("fields") String fields, WebRequest request) {
+        if (request.checkNotModified(issueService.getIssueProjectionTag(id))) {
+            return null;
+        }
+        return issueService.getIssueById(id, fields);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            tags = {"Issue"},
+            summary = "Subscribing to changes of all issues",
+            description = "Server-Sent Events named issue-created, issue-updated, issue-deleted, comment-created and comment-deleted. " +
+                    "A 'resync' event means events were dropped because the client read too slowly, and it should reload",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = IssueEvent.class))
                     )
             }
     )
-    public Issue getById(@PathVariable Long id) {
-        return issueService.getIssueById(id);
+    public SseEmitter subscribe() {
+        return issueService.subscribe(null);
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            tags = {"Issue"},
+            operationId = "id",
+            summary = "Subscribing to edits and comments of an issue",
+            description = "Server-Sent Events named issue-updated, issue-deleted, comment-created and comment-deleted. " +
+                    "A 'resync' event means events were dropped because the client read too slowly, and it should reload",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = IssueEvent.class))
+                    )
+            }
+    )
+    public SseEmitter subscribe(@PathVariable Long id) {
+        return issueService.subscribe(id);
+    }
+
+    @GetMapping("/{id}/stats")
+    @Operation(
+            tags = {"Issue"},
+            operationId = "id",
+            summary = "Getting the number of comments and the total likes of an issue",
+            description = "Reads counters kept up to date by the create and delete paths, without loading the comments. " +
+                    "Likes are included once they are flushed, within 'app.likes.flush-interval-ms'",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = IssueStats.class))
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Not Found")
+            }
+    )
+    public ResponseEntity<IssueStats> getStats(@PathVariable Long id) {
+        return issueService.getIssueStats(id);
+    }
+
+    @GetMapping("/{id}/likers")
+    @Operation(
+            tags = {"Issue"},
+            operationId = "id",
+            summary = "Getting the approximate number of unique likers over all comments of an issue",
+            parameters = {@Parameter(name = "id", example = "1")},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UniqueLikers.class))
+                    )
+            }
+    )
+    public ResponseEntity<UniqueLikers> getLikers(@PathVariable Long id) {
+        return issueService.getIssueLikers(id);
     }
 
     @PatchMapping("/edit/{id}")
@@ -117,18 +317,96 @@ public class IssueController {
     @Operation(
             tags = {"Issue"},
             summary = "Getting issues list",
+            description = "Pass 'after' and/or 'limit' to get one page ordered by id. The 'next' field of the page is the 'after' value of the following page. " +
+                    "The ETag changes with any issue or comment, send it back in 'If-None-Match' to get 304 while nothing changed",
+            parameters = {
+                    @Parameter(name = "after", description = "Id of the last issue of the previous page", example = "0"),
+                    @Parameter(name = "limit", description = "Page size, 1 to 1000", example = "100")
+            },
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "OK",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Issue.class))
-                    )
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
             }
     )
-    public ResponseEntity<List<Issue>> getList() {
+    public ResponseEntity<?> getList(@RequestParam(value = "after", required = false) Long after,
+                                     @RequestParam(value = "limit", required = false) Integer limit,
+                                     WebRequest request) {
+        if (request.checkNotModified(issueService.getIssueListTag())) {
+            return null;
+        }
+        if (after != null || limit != null) {
+            return issueService.getIssuePage(after, limit);
+        }
         return issueService.getIssueList();
     }
 
+    @GetMapping(value = "/list", params = "fields")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Getting issues list with selected fields",
+            description = "Same as the plain list with only the selected fields and the id of every issue. " +
+                    "Only the selected columns are read, comments are loaded with one query for the whole list",
+            parameters = {
+                    @Parameter(name = "fields", description = "Nested field selection", example = "id,title"),
+                    @Parameter(name = "after", description = "Id of the last issue of the previous page", example = "0"),
+                    @Parameter(name = "limit", description = "Page size, 1 to 1000", example = "100")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK"),
+                    @ApiResponse(responseCode = "304", description = "Not Modified")
+            }
+    )
+    public ResponseEntity<Object> getList(@RequestParam("fields") String fields,
+                                          @RequestParam(value = "after", required = false) Long after,
+                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                          WebRequest request) {
+        if (request.checkNotModified(issueService.getIssueListProjectionTag())) {
+            return null;
+        }
+        if (after != null || limit != null) {
+            return issueService.getIssuePage(after, limit, fields);
+        }
+        return issueService.getIssueList(fields);
+    }
+
+    @GetMapping(value = "/list", params = "stream=true")
+    @Operation(
+            tags = {"Issue"},
+            summary = "Streaming issues list",
+            description = "Writes the whole list as a JSON array while rows are read from the database",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Issue.class))
+                    )
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> streamList() {
+        return issueService.streamIssueList();
+    }
+
+    @GetMapping(value = "/list", params = "reactive=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            tags = {"Issue"},
+            summary = "Publishing issues list",
+            description = "Writes one issue JSON object per line. Pages of issues are read only as fast as the client consumes them",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Issue.class))
+                    )
+            }
+    )
+    public Flux<Issue> publishList() {
+        return issueService.publishIssueList();
+    }
+
     @DeleteMapping("/{id}")
     @Operation(
             tags = {"Issue"},
@@ -143,4 +421,21 @@ public class IssueController {
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         return issueService.removeIssue(id);
     }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            tags = {"Issue"},
+            summary = "Export all issues",
+            description = "Writes one issue JSON object per line while rows are read from the database",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "OK",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Issue.class))
+                    )
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> export() {
+        return issueService.exportIssues();
+    }
 }
@@ -0,0 +1,70 @@
+package simple.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import simple.metrics.EndpointMetrics;
+import simple.write.CommentWriteQueue;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Autowired
+    private CommentWriteQueue commentWriteQueue;
+
+    @GetMapping
+    @Operation(
+            tags = "Metrics",
+            summary = "Endpoint latency and throughput",
+            description = "Latency percentiles in milliseconds, request and error counters per controller method",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK"
+            )
+    )
+    public ResponseEntity<Map<String, Map<String, Object>>> getMetrics() {
+        return ResponseEntity.ok().body(endpointMetrics.getSnapshot());
+    }
+
+    @GetMapping("/prometheus")
+    @Operation(
+            tags = "Metrics",
+            summary = "Endpoint metrics in Prometheus format",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK"
+            )
+    )
+    public ResponseEntity<String> getPrometheusMetrics() {
+        return ResponseEntity.ok()
+                .contentType(PROMETHEUS_TEXT)
+                .body(endpointMetrics.getPrometheusText() + commentWriteQueue.getPrometheusText());
+    }
+
+    @GetMapping("/comment-writes")
+    @Operation(
+            tags = "Metrics",
+            summary = "Group commit of comments",
+            description = "Queue depth, commit counters, batch sizes and commit latency percentiles in milliseconds",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "OK"
+            )
+    )
+    public ResponseEntity<Map<String, Object>> getCommentWriteMetrics() {
+        return ResponseEntity.ok().body(commentWriteQueue.getStats());
+    }
+}
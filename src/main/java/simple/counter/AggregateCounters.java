@@ -0,0 +1,194 @@
+package simple.counter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import simple.dto.CounterDrift;
+import simple.dto.EmployeeStats;
+import simple.dto.IssueStats;
+import simple.dto.Reconciliation;
+import simple.entity.Change;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Denormalized issue counts of employees and comment and like counts of issues. The create and
+ * delete paths add their deltas with one relative {@code UPDATE}, so the columns never have to be
+ * read first and concurrent writers do not lose each other's increments. The columns are not
+ * mapped for writes, saving a cached entity snapshot never overwrites them. A background job
+ * recomputes the counters from the rows and reports and fixes any drift.
+ */
+@Slf4j
+@Component
+public class AggregateCounters {
+
+    public static final int MAX_REPORTED_DRIFTS = 100;
+
+    private static final String ADD_ISSUES_SQL = "UPDATE employee SET issue_count = issue_count + ? WHERE id = ?";
+    private static final String ADD_COMMENTS_SQL = "UPDATE issue SET comment_count = comment_count + ?, " +
+            "like_count = like_count + ? WHERE id = ?";
+    private static final String COUNT_ISSUES = "(SELECT COUNT(*) FROM issue WHERE issue.employee = employee.id)";
+    private static final String COUNT_COMMENTS = "(SELECT COUNT(*) FROM comment WHERE comment.post = issue.id)";
+    private static final String SUM_LIKES = "(SELECT COALESCE(SUM(comment.likes), 0) FROM comment WHERE comment.post = issue.id)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Reconciliation lastReconciliation;
+
+    public void addIssue(Issue issue) {
+        addIssues(List.of(issue));
+    }
+
+    public void addIssues(Collection<Issue> issues) {
+        updateIssueCounts(issues, 1);
+    }
+
+    public void removeIssue(Issue issue) {
+        updateIssueCounts(List.of(issue), -1);
+    }
+
+    public void addComment(Comment comment) {
+        addComments(List.of(comment));
+    }
+
+    public void addComments(Collection<Comment> comments) {
+        updateCommentCounts(comments, 1);
+    }
+
+    /**
+     * Takes the comment's stored likes off its issue. Likes not flushed yet never reached the issue.
+     */
+    public void removeComment(Comment comment) {
+        updateCommentCounts(List.of(comment), -1);
+    }
+
+    /**
+     * Sets the like count of the issues to the sum of their comment likes. Used after likes are flushed,
+     * the comment counter never drops below zero, so a relative update could not tell how much was applied.
+     */
+    public void refreshLikes(Collection<Long> issueIds) {
+        List<Object[]> batch = issueIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList());
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE issue SET like_count = " + SUM_LIKES + " WHERE id = ?", batch);
+        }
+    }
+
+    /**
+     * Returns the stored counters of an employee, or {@code null} if it does not exist.
+     */
+    public EmployeeStats getEmployeeStats(Long id) {
+        List<EmployeeStats> stats = jdbcTemplate.query("SELECT issue_count FROM employee WHERE id = ?",
+                (rs, rowNum) -> new EmployeeStats(rs.getLong(1)), id);
+        return stats.isEmpty() ? null : stats.get(0);
+    }
+
+    /**
+     * Returns the stored counters of an issue, or {@code null} if it does not exist.
+     */
+    public IssueStats getIssueStats(Long id) {
+        List<IssueStats> stats = jdbcTemplate.query("SELECT comment_count, like_count FROM issue WHERE id = ?",
+                (rs, rowNum) -> new IssueStats(rs.getLong(1), rs.getLong(2)), id);
+        return stats.isEmpty() ? null : stats.get(0);
+    }
+
+    /**
+     * Returns the result of the last reconciliation, or {@code null} if none has run yet.
+     */
+    public Reconciliation getLastReconciliation() {
+        return lastReconciliation;
+    }
+
+    @Scheduled(initialDelayString = "${app.counters.reconciliation-interval-ms:600000}",
+            fixedDelayString = "${app.counters.reconciliation-interval-ms:600000}")
+    public synchronized Reconciliation reconcile() {
+        long start = System.currentTimeMillis();
+        List<CounterDrift> drifts = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, issue_count, " + COUNT_ISSUES + " FROM employee " +
+                        "WHERE issue_count <> " + COUNT_ISSUES,
+                rs -> {
+                    drifts.add(new CounterDrift(Change.Type.EMPLOYEE, rs.getLong(1), Employee.ISSUE_COUNT_FIELD,
+                            rs.getLong(2), rs.getLong(3)));
+                });
+        jdbcTemplate.query("SELECT id, comment_count, " + COUNT_COMMENTS + ", like_count, " + SUM_LIKES + " FROM issue " +
+                        "WHERE comment_count <> " + COUNT_COMMENTS + " OR like_count <> " + SUM_LIKES,
+                rs -> {
+                    if (rs.getLong(2) != rs.getLong(3)) {
+                        drifts.add(new CounterDrift(Change.Type.ISSUE, rs.getLong(1), Issue.COMMENT_COUNT_FIELD,
+                                rs.getLong(2), rs.getLong(3)));
+                    }
+                    if (rs.getLong(4) != rs.getLong(5)) {
+                        drifts.add(new CounterDrift(Change.Type.ISSUE, rs.getLong(1), Issue.LIKE_COUNT_FIELD,
+                                rs.getLong(4), rs.getLong(5)));
+                    }
+                });
+
+        // recomputed in the statement itself, so increments committed since the check are kept
+        List<Object[]> employeeIds = ids(drifts, Change.Type.EMPLOYEE);
+        if (!employeeIds.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE employee SET issue_count = " + COUNT_ISSUES + " WHERE id = ?", employeeIds);
+        }
+        List<Object[]> issueIds = ids(drifts, Change.Type.ISSUE);
+        if (!issueIds.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE issue SET comment_count = " + COUNT_COMMENTS + ", like_count = " + SUM_LIKES +
+                    " WHERE id = ?", issueIds);
+        }
+        if (!drifts.isEmpty()) {
+            log.warn("Fixed {} drifted counters of {} employees and {} issues", drifts.size(), employeeIds.size(), issueIds.size());
+        }
+
+        long end = System.currentTimeMillis();
+        lastReconciliation = new Reconciliation(end, end - start, drifts.size(),
+                List.copyOf(drifts.subList(0, Math.min(drifts.size(), MAX_REPORTED_DRIFTS))));
+        return lastReconciliation;
+    }
+
+    private void updateIssueCounts(Collection<Issue> issues, int sign) {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        for (Issue issue : issues) {
+            if (issue.getEmployee() != null && issue.getEmployee().getId() != null) {
+                deltas.merge(issue.getEmployee().getId(), (long) sign, Long::sum);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_ISSUES_SQL, deltas.entrySet().stream()
+                    .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private void updateCommentCounts(Collection<Comment> comments, int sign) {
+        Map<Long, long[]> deltas = new LinkedHashMap<>();
+        for (Comment comment : comments) {
+            if (comment.getIssue() != null && comment.getIssue().getId() != null) {
+                long[] delta = deltas.computeIfAbsent(comment.getIssue().getId(), id -> new long[2]);
+                delta[0] += sign;
+                delta[1] += (long) sign * comment.getLikes();
+            }
+        }
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_COMMENTS_SQL, deltas.entrySet().stream()
+                    .map(delta -> new Object[]{delta.getValue()[0], delta.getValue()[1], delta.getKey()})
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private static List<Object[]> ids(List<CounterDrift> drifts, Change.Type type) {
+        return drifts.stream()
+                .filter(drift -> drift.getEntityType() == type)
+                .map(CounterDrift::getEntityId)
+                .distinct()
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList());
+    }
+}
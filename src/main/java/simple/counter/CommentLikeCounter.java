@@ -0,0 +1,296 @@
+package simple.counter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionOperations;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.entity.Change;
+import simple.entity.Comment;
+import simple.search.TopCommentIndex;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind like counters. Likes and unlikes go to a striped {@link LongAdder} per comment
+ * and are periodically added to the {@code likes} column with one JDBC batch, so a hot comment
+ * never queues on its row lock. The stored value never drops below zero.
+ * <p>
+ * A counter lives only while it has likes to write: the flush drops counters left at zero, so the
+ * map holds the recently liked comments only. Counters are also indexed by issue and by employee
+ * for the tags.
+ */
+@Component
+public class CommentLikeCounter {
+
+    private static final String FLUSH_SQL = "UPDATE comment SET likes = GREATEST(likes + ?, 0), version = version + 1 WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private AggregateCounters aggregateCounters;
+
+    @Autowired
+    private TopCommentIndex topCommentIndex;
+
+    private final Map<Long, PendingLikes> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> pendingByIssue = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> pendingByEmployee = new ConcurrentHashMap<>();
+
+    /**
+     * Adds {@code delta} to a comment that already has a counter.
+     * Returns {@code false} if the comment is not tracked yet and has to be added with {@link #add(Comment, int)}.
+     */
+    public boolean add(Long commentId, int delta) {
+        PendingLikes likes = pending.get(commentId);
+        if (likes == null) {
+            return false;
+        }
+        likes.delta.add(delta);
+        if (likes.removed) {
+            moveRemoved(commentId, likes);
+        }
+        return true;
+    }
+
+    public void add(Comment comment, int delta) {
+        Long issueId = comment.getIssue() == null ? null : comment.getIssue().getId();
+        Long employeeId = comment.getIssue() == null || comment.getIssue().getEmployee() == null
+                ? null : comment.getIssue().getEmployee().getId();
+        PendingLikes likes = track(comment.getId(), issueId, employeeId);
+        likes.delta.add(delta);
+        if (likes.removed) {
+            moveRemoved(comment.getId(), likes);
+        }
+    }
+
+    /**
+     * Returns likes added since the last flush, possibly negative.
+     */
+    public long getPendingDelta(Long commentId) {
+        PendingLikes likes = pending.get(commentId);
+        return likes == null ? 0 : likes.delta.sum();
+    }
+
+    /**
+     * Returns the issue of a tracked comment, or {@code null} if the comment is not tracked.
+     */
+    public Long getIssueId(Long commentId) {
+        PendingLikes likes = pending.get(commentId);
+        return likes == null ? null : likes.issueId;
+    }
+
+    /**
+     * Returns a hash of the pending likes on the comments of an issue, {@code 0} if there are none.
+     */
+    public long getPendingLikesHash(Long issueId) {
+        return hash(pendingByIssue.get(issueId));
+    }
+
+    /**
+     * Returns a hash of the pending likes on the comments of the issues of an employee, {@code 0} if there are none.
+     */
+    public long getEmployeePendingLikesHash(Long employeeId) {
+        return hash(pendingByEmployee.get(employeeId));
+    }
+
+    /**
+     * Returns a hash of all pending likes, {@code 0} if there are none.
+     */
+    public long getPendingLikesHash() {
+        return hash(pending.keySet());
+    }
+
+    public void remove(Long commentId) {
+        PendingLikes likes = pending.get(commentId);
+        if (likes != null) {
+            untrack(commentId, likes);
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.likes.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Long> ids = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        Map<Long, PendingLikes> idle = new HashMap<>();
+        pending.forEach((id, likes) -> {
+            long delta = likes.delta.sum();
+            if (delta == 0) {
+                idle.put(id, likes);
+            } else {
+                // subtracting what was read keeps likes that arrive meanwhile for the next flush
+                likes.delta.add(-delta);
+                ids.add(id);
+                deltas.add(delta);
+                batch.add(new Object[]{delta, id});
+            }
+        });
+        idle.forEach(this::prune);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int[] updated;
+        try {
+            // the likes and their changes are stored together or not at all
+            updated = transactionOperations.execute(status -> {
+                int[] rows = jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+                changeLog.record(changes(ids, rows));
+                return rows;
+            });
+        } catch (DataAccessException | TransactionException e) {
+            for (int i = 0; i < ids.size(); i++) {
+                PendingLikes likes = pending.get(ids.get(i));
+                if (likes != null) {
+                    likes.delta.add(deltas.get(i));
+                }
+            }
+            throw e;
+        }
+
+        Set<Long> issueIds = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            PendingLikes likes = pending.get(ids.get(i));
+            if (likes == null) {
+                continue;
+            }
+            if (i < updated.length && updated[i] == 0) {
+                untrack(ids.get(i), likes);
+            } else {
+                issueIds.add(likes.issueId);
+                topCommentIndex.addLikes(ids.get(i), deltas.get(i));
+                prune(ids.get(i), likes);
+            }
+            entityCache.evictIssue(likes.issueId, likes.employeeId);
+        }
+        aggregateCounters.refreshLikes(issueIds);
+    }
+
+    private List<Change> changes(List<Long> ids, int[] updated) {
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            PendingLikes likes = pending.get(ids.get(i));
+            if (likes != null && (i >= updated.length || updated[i] != 0)) {
+                changes.add(Change.upsert(Change.Type.COMMENT, ids.get(i)));
+                changes.add(Change.upsert(Change.Type.ISSUE, likes.issueId));
+                changes.add(Change.upsert(Change.Type.EMPLOYEE, likes.employeeId));
+            }
+        }
+        return changes;
+    }
+
+    private PendingLikes track(Long commentId, Long issueId, Long employeeId) {
+        return pending.computeIfAbsent(commentId, id -> {
+            index(pendingByIssue, issueId, id);
+            index(pendingByEmployee, employeeId, id);
+            return new PendingLikes(issueId, employeeId);
+        });
+    }
+
+    private void untrack(Long commentId, PendingLikes likes) {
+        likes.removed = true;
+        pending.computeIfPresent(commentId, (id, current) -> {
+            if (current != likes) {
+                return current;
+            }
+            unindex(pendingByIssue, likes.issueId, id);
+            unindex(pendingByEmployee, likes.employeeId, id);
+            return null;
+        });
+    }
+
+    /**
+     * Drops a counter with nothing left to write. Likes added meanwhile to the dropped counter, by a
+     * request that got it before it was dropped, are moved to a new one.
+     */
+    private void prune(Long commentId, PendingLikes likes) {
+        if (likes.delta.sum() != 0) {
+            return;
+        }
+        untrack(commentId, likes);
+        moveRemoved(commentId, likes);
+    }
+
+    private void moveRemoved(Long commentId, PendingLikes likes) {
+        synchronized (likes) {
+            long delta = likes.delta.sum();
+            if (delta != 0) {
+                likes.delta.add(-delta);
+                track(commentId, likes.issueId, likes.employeeId).delta.add(delta);
+            }
+        }
+    }
+
+    private long hash(Set<Long> commentIds) {
+        if (commentIds == null) {
+            return 0;
+        }
+        long hash = 0;
+        for (Long commentId : commentIds) {
+            long delta = getPendingDelta(commentId);
+            if (delta != 0) {
+                // a sum of mixed entries does not depend on the iteration order
+                hash += mix(commentId * 31 + delta);
+            }
+        }
+        return hash;
+    }
+
+    private static void index(Map<Long, Set<Long>> index, Long key, Long commentId) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, commentIds) -> {
+            Set<Long> result = commentIds == null ? ConcurrentHashMap.newKeySet() : commentIds;
+            result.add(commentId);
+            return result;
+        });
+    }
+
+    private static void unindex(Map<Long, Set<Long>> index, Long key, Long commentId) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, commentIds) -> {
+            commentIds.remove(commentId);
+            return commentIds.isEmpty() ? null : commentIds;
+        });
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static final class PendingLikes {
+        private final LongAdder delta = new LongAdder();
+        private final Long issueId;
+        private final Long employeeId;
+        private volatile boolean removed;
+
+        private PendingLikes(Long issueId, Long employeeId) {
+            this.issueId = issueId;
+            this.employeeId = employeeId;
+        }
+    }
+}
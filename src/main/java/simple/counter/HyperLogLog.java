@@ -0,0 +1,298 @@
+package simple.counter;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values added to it, with
+ * {@code 2^precision} one-byte registers and a relative standard error of {@code 1.04 / sqrt(2^precision)}.
+ * <p>
+ * The serialized form is sparse (only the non-zero registers) while few registers are set,
+ * so a sketch of a handful of likers takes a few bytes. Sketches of different precision can
+ * be merged, the result then has the lower precision.
+ * <p>
+ * A sketch is not thread-safe, except through the {@code Concurrently} methods, which only ever
+ * raise registers with a compare-and-set and never change the precision.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+    public static final int MAX_SERIALIZED_SIZE = 2 + (1 << MAX_PRECISION);
+
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+    private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private byte[] registers;
+    private int precision;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision should be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Returns the smallest precision whose relative standard error is at most {@code relativeError}.
+     */
+    public static int precisionFor(double relativeError) {
+        if (!(relativeError > 0)) {
+            throw new IllegalArgumentException("Relative error should be positive");
+        }
+        double registerCount = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registerCount) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length < 2 || (bytes[0] != SPARSE && bytes[0] != DENSE)) {
+            throw new IllegalArgumentException("Unknown sketch format");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[1]);
+        if (bytes[0] == DENSE) {
+            System.arraycopy(bytes, 2, sketch.registers, 0, sketch.registers.length);
+            return sketch;
+        }
+        int[] position = {2};
+        int count = readVarint(bytes, position);
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            index += readVarint(bytes, position);
+            sketch.registers[index] = bytes[position[0]++];
+        }
+        return sketch;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = index(hash);
+        int rank = rank(hash);
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Adds a hash while other threads may add to or read the sketch.
+     */
+    public void addHashConcurrently(long hash) {
+        raise(index(hash), rank(hash));
+    }
+
+    /**
+     * Merges another sketch while other threads may add to or read this one. A sketch of higher
+     * precision is folded to this one first, a sketch of lower precision is rejected.
+     */
+    public void mergeConcurrently(HyperLogLog other) {
+        if (other.precision < precision) {
+            throw new IllegalArgumentException("Cannot merge a sketch of lower precision concurrently");
+        }
+        byte[] otherRegisters = other.precision == precision ? other.registers : fold(other.registers, other.precision, precision);
+        for (int i = 0; i < registers.length; i++) {
+            if (otherRegisters[i] != 0) {
+                raise(i, otherRegisters[i]);
+            }
+        }
+    }
+
+    /**
+     * Copies a sketch that other threads may add to, seeing every add that completed before.
+     */
+    public HyperLogLog copyConcurrently() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        for (int i = 0; i < registers.length; i++) {
+            copy.registers[i] = (byte) REGISTER.getVolatile(registers, i);
+        }
+        return copy;
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision < precision) {
+            registers = fold(registers, precision, other.precision);
+            precision = other.precision;
+        }
+        byte[] otherRegisters = other.precision == precision ? other.registers : fold(other.registers, other.precision, precision);
+        for (int i = 0; i < registers.length; i++) {
+            if (otherRegisters[i] > registers[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        // a sparse entry takes up to 3 bytes for the index delta and 1 for the rank
+        if (nonZero * 4 + 5 >= registers.length) {
+            byte[] bytes = new byte[2 + registers.length];
+            bytes[0] = DENSE;
+            bytes[1] = (byte) precision;
+            System.arraycopy(registers, 0, bytes, 2, registers.length);
+            return bytes;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + 5 + nonZero * 2);
+        out.write(SPARSE);
+        out.write(precision);
+        writeVarint(out, nonZero);
+        int previous = 0;
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] != 0) {
+                writeVarint(out, i - previous);
+                out.write(registers[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HyperLogLog)) {
+            return false;
+        }
+        HyperLogLog other = (HyperLogLog) o;
+        return precision == other.precision && Arrays.equals(registers, other.registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * precision + Arrays.hashCode(registers);
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer for good high bits.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53a87d5L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private int index(long hash) {
+        return (int) (hash >>> (64 - precision));
+    }
+
+    private int rank(long hash) {
+        int rank = Long.numberOfLeadingZeros(hash << precision) + 1;
+        return Math.min(rank, 64 - precision + 1);
+    }
+
+    private void raise(int index, int rank) {
+        byte current;
+        do {
+            current = (byte) REGISTER.getVolatile(registers, index);
+            if (rank <= current) {
+                return;
+            }
+        } while (!REGISTER.compareAndSet(registers, index, current, (byte) rank));
+    }
+
+    private static byte[] fold(byte[] registers, int fromPrecision, int toPrecision) {
+        int shift = fromPrecision - toPrecision;
+        int mask = (1 << shift) - 1;
+        byte[] folded = new byte[1 << toPrecision];
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            int droppedBits = i & mask;
+            int rank = droppedBits != 0
+                    ? shift - (32 - Integer.numberOfLeadingZeros(droppedBits)) + 1
+                    : shift + registers[i];
+            int index = i >>> shift;
+            if (rank > folded[index]) {
+                folded[index] = (byte) rank;
+            }
+        }
+        return folded;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,214 @@
+package simple.counter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import simple.dto.UniqueLikers;
+import simple.entity.CommentLikers;
+import simple.entity.IssueLikers;
+import simple.entity.LikerSketch;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate number of distinct likers per comment and per issue, kept as HyperLogLog sketches
+ * in the {@code comment_likers} and {@code issue_likers} tables, so reads of the entities never
+ * load them. New likers go to in-memory sketches that are merged into the stored ones on the same
+ * write-behind schedule as the like counters. An issue has its own sketch, updated with every like
+ * of its comments, so its total never needs the comment sketches. Unliking does not remove a liker.
+ * <p>
+ * Likes raise the registers of the in-memory sketches with a compare-and-set, so likes of the same
+ * comment never wait for each other. A like that raced with the flush of its sketch adds its liker
+ * again to a new one, which is harmless since a sketch counts every liker once.
+ */
+@Component
+public class UniqueLikerCounter {
+
+    static final String COMMENT_TABLE = "comment";
+    static final String ISSUE_TABLE = "issue";
+    private static final int SELECT_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.likers.relative-error:0.02}")
+    private double relativeError = 0.02;
+
+    private final Sketches comments = new Sketches(COMMENT_TABLE, CommentLikers.TABLE);
+    private final Sketches issues = new Sketches(ISSUE_TABLE, IssueLikers.TABLE);
+
+    public void add(Long commentId, Long issueId, String liker) {
+        long hash = HyperLogLog.hash(liker);
+        comments.add(commentId, hash);
+        if (issueId != null) {
+            issues.add(issueId, hash);
+        }
+    }
+
+    /**
+     * Returns the estimate for the comment, or {@code null} if it does not exist.
+     */
+    public UniqueLikers getCommentLikers(Long commentId) {
+        return comments.estimate(commentId);
+    }
+
+    /**
+     * Returns the estimate for the issue, or {@code null} if it does not exist.
+     */
+    public UniqueLikers getIssueLikers(Long issueId) {
+        return issues.estimate(issueId);
+    }
+
+    /**
+     * Deletes the sketch of a deleted comment.
+     */
+    public void removeComment(Long commentId) {
+        comments.remove(List.of(commentId));
+    }
+
+    /**
+     * Deletes the sketches of a deleted issue and of its comments.
+     */
+    public void removeIssue(Long issueId, Collection<Long> commentIds) {
+        issues.remove(List.of(issueId));
+        if (!commentIds.isEmpty()) {
+            comments.remove(commentIds);
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.likes.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        comments.flush();
+        issues.flush();
+    }
+
+    private HyperLogLog newSketch() {
+        return new HyperLogLog(HyperLogLog.precisionFor(relativeError));
+    }
+
+    private final class Sketches {
+
+        private final String table;
+        private final String sketchTable;
+        private final Map<Long, PendingSketch> pending = new ConcurrentHashMap<>();
+
+        private Sketches(String table, String sketchTable) {
+            this.table = table;
+            this.sketchTable = sketchTable;
+        }
+
+        private void add(Long id, long hash) {
+            while (true) {
+                PendingSketch sketch = pending.get(id);
+                if (sketch == null) {
+                    sketch = pending.computeIfAbsent(id, key -> new PendingSketch(newSketch()));
+                }
+                sketch.likers.addHashConcurrently(hash);
+                if (!sketch.drained) {
+                    return;
+                }
+            }
+        }
+
+        private UniqueLikers estimate(Long id) {
+            List<byte[]> stored = jdbcTemplate.queryForList("SELECT s." + LikerSketch.LIKERS_FIELD + " FROM " + table +
+                    " e LEFT JOIN " + sketchTable + " s ON s." + LikerSketch.ID_FIELD + " = e.id WHERE e.id = :id",
+                    Map.of("id", id), byte[].class);
+            if (stored.isEmpty()) {
+                return null;
+            }
+            HyperLogLog sketch = newSketch();
+            if (stored.get(0) != null) {
+                sketch.merge(HyperLogLog.fromBytes(stored.get(0)));
+            }
+            PendingSketch pendingSketch = pending.get(id);
+            if (pendingSketch != null) {
+                sketch.merge(pendingSketch.likers.copyConcurrently());
+            }
+            return new UniqueLikers(sketch.estimate(), sketch.getRelativeError());
+        }
+
+        private void remove(Collection<Long> ids) {
+            ids.forEach(pending::remove);
+            jdbcTemplate.update("DELETE FROM " + sketchTable + " WHERE " + LikerSketch.ID_FIELD + " IN (:ids)",
+                    Map.of("ids", ids));
+        }
+
+        private void flush() {
+            Map<Long, HyperLogLog> drained = new HashMap<>();
+            for (Long id : new ArrayList<>(pending.keySet())) {
+                PendingSketch sketch = pending.remove(id);
+                if (sketch != null) {
+                    // likes that see the flag from now on go to a new sketch, those before it are in the copy
+                    sketch.drained = true;
+                    drained.put(id, sketch.likers.copyConcurrently());
+                }
+            }
+            if (drained.isEmpty()) {
+                return;
+            }
+
+            try {
+                Map<Long, byte[]> stored = load(new ArrayList<>(drained.keySet()));
+                List<Map<String, Object>> inserts = new ArrayList<>();
+                List<Map<String, Object>> updates = new ArrayList<>();
+                drained.forEach((id, sketch) -> {
+                    if (!stored.containsKey(id)) {
+                        // the comment or issue was deleted
+                        return;
+                    }
+                    byte[] storedLikers = stored.get(id);
+                    HyperLogLog merged = sketch.copy();
+                    if (storedLikers != null) {
+                        merged.merge(HyperLogLog.fromBytes(storedLikers));
+                    }
+                    (storedLikers == null ? inserts : updates).add(Map.of("likers", merged.toBytes(), "id", id));
+                });
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate("INSERT INTO " + sketchTable + " (" + LikerSketch.ID_FIELD + ", " +
+                            LikerSketch.LIKERS_FIELD + ") VALUES (:id, :likers)", inserts.toArray(new Map[0]));
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE " + sketchTable + " SET " + LikerSketch.LIKERS_FIELD +
+                            " = :likers WHERE " + LikerSketch.ID_FIELD + " = :id", updates.toArray(new Map[0]));
+                }
+            } catch (DataAccessException e) {
+                drained.forEach((id, sketch) ->
+                        pending.computeIfAbsent(id, key -> new PendingSketch(newSketch())).likers.mergeConcurrently(sketch));
+                throw e;
+            }
+        }
+
+        /**
+         * Returns the stored sketch of each id that still exists, {@code null} for those without one yet.
+         */
+        private Map<Long, byte[]> load(List<Long> ids) {
+            Map<Long, byte[]> stored = new HashMap<>();
+            for (int from = 0; from < ids.size(); from += SELECT_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + SELECT_CHUNK_SIZE));
+                jdbcTemplate.query("SELECT e.id, s." + LikerSketch.LIKERS_FIELD + " FROM " + table + " e LEFT JOIN " +
+                                sketchTable + " s ON s." + LikerSketch.ID_FIELD + " = e.id WHERE e.id IN (:ids)",
+                        Map.of("ids", chunk), resultSet -> {
+                            stored.put(resultSet.getLong(1), resultSet.getBytes(2));
+                        });
+            }
+            return stored;
+        }
+    }
+
+    private static final class PendingSketch {
+
+        private final HyperLogLog likers;
+        private volatile boolean drained;
+
+        private PendingSketch(HyperLogLog likers) {
+            this.likers = likers;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package simple.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+    private int index;
+    private int status;
+    private Long id;
+    private String error;
+
+    public static BulkItemResult created(int index, Long id) {
+        return new BulkItemResult(index, HttpStatus.CREATED.value(), id, null);
+    }
+
+    public static BulkItemResult failed(int index, HttpStatus status, String error) {
+        return new BulkItemResult(index, status.value(), null, error);
+    }
+}
@@ -0,0 +1,15 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import simple.entity.Change;
+
+@Getter
+@AllArgsConstructor
+public class ChangeItem {
+    private long revision;
+    private Change.Type type;
+    private Long id;
+    private boolean deleted;
+    private Object data;
+}
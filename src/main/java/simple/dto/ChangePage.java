@@ -0,0 +1,14 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ChangePage {
+    private List<ChangeItem> changes;
+    private long revision;
+    private boolean hasMore;
+}
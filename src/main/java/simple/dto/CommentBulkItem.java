@@ -0,0 +1,16 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentBulkItem {
+    private Long issueId;
+    private String text;
+    private int likes;
+}
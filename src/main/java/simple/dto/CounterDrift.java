@@ -0,0 +1,15 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import simple.entity.Change;
+
+@Getter
+@AllArgsConstructor
+public class CounterDrift {
+    private Change.Type entityType;
+    private Long entityId;
+    private String counter;
+    private long stored;
+    private long actual;
+}
@@ -0,0 +1,10 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeStats {
+    private long issueCount;
+}
@@ -0,0 +1,16 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssueBulkItem {
+    private Long employeeId;
+    private String title;
+    private String description;
+}
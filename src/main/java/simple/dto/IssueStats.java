@@ -0,0 +1,11 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class IssueStats {
+    private long commentCount;
+    private long likeCount;
+}
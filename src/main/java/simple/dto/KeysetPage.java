@@ -0,0 +1,13 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    private Long next;
+}
@@ -0,0 +1,14 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class MultiGetResult<T> {
+    private Map<Long, T> items;
+    private List<Long> missing;
+}
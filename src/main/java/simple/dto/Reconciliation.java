@@ -0,0 +1,15 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class Reconciliation {
+    private long finishedAt;
+    private long durationMs;
+    private int driftCount;
+    private List<CounterDrift> drifts;
+}
@@ -0,0 +1,11 @@
+package simple.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class UniqueLikers {
+    private long uniqueLikers;
+    private double relativeError;
+}
@@ -0,0 +1,49 @@
+package simple.dto;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Row count, sum of versions, sum of ids and highest id of a set of rows. Every update increments
+ * a version and an insert or delete changes the count unless both happen, in which case the
+ * rows differ in ids. Ids come from blocks handed out to concurrent writers, so a new row may
+ * have a lower id than one deleted meanwhile: the sum of ids tells such sets apart where the
+ * highest id alone would not.
+ */
+@Getter
+public class VersionStamp {
+    private final long count;
+    private final long versionSum;
+    private final long idSum;
+    private final long maxId;
+
+    public VersionStamp(Number count, Number versionSum, Number idSum, Number maxId) {
+        this.count = count == null ? 0 : count.longValue();
+        this.versionSum = versionSum == null ? 0 : versionSum.longValue();
+        this.idSum = idSum == null ? 0 : idSum.longValue();
+        this.maxId = maxId == null ? 0 : maxId.longValue();
+    }
+
+    /**
+     * Stamps rows already loaded the way the stamp queries do, so a tag can be built from the body served.
+     */
+    public static <T> VersionStamp of(Collection<T> rows, Function<T, Long> id, Function<T, Long> version) {
+        long versionSum = 0;
+        long idSum = 0;
+        long maxId = 0;
+        for (T row : rows) {
+            Long rowVersion = version.apply(row);
+            versionSum += rowVersion == null ? 0 : rowVersion;
+            idSum += id.apply(row);
+            maxId = Math.max(maxId, id.apply(row));
+        }
+        return new VersionStamp(rows.size(), versionSum, idSum, maxId);
+    }
+
+    @Override
+    public String toString() {
+        return count + "." + versionSum + "." + idSum + "." + maxId;
+    }
+}
@@ -0,0 +1,56 @@
+package simple.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = Change.TABLE, indexes = @Index(name = "change_log_entity", columnList = Change.TYPE_FIELD + ", " + Change.ENTITY_ID_FIELD))
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class Change {
+
+    public static final String TABLE = "change_log";
+    public static final String REVISION_FIELD = "revision";
+    public static final String TYPE_FIELD = "entity_type";
+    public static final String ENTITY_ID_FIELD = "entity_id";
+    public static final String DELETED_FIELD = "deleted";
+    public static final String CHANGED_AT_FIELD = "changed_at";
+    public static final String REVISION_SEQUENCE = "change_log_seq";
+    public static final int REVISION_BLOCK_SIZE = 50;
+
+    public enum Type {
+        EMPLOYEE, ISSUE, COMMENT
+    }
+
+    @Id
+    @GeneratedValue(generator = REVISION_SEQUENCE)
+    @SequenceGenerator(name = REVISION_SEQUENCE, sequenceName = REVISION_SEQUENCE, allocationSize = REVISION_BLOCK_SIZE)
+    @Column(name = REVISION_FIELD)
+    private Long revision;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = TYPE_FIELD, length = 16)
+    private Type type;
+
+    @Column(name = ENTITY_ID_FIELD)
+    private Long entityId;
+
+    @Column(name = DELETED_FIELD)
+    private boolean deleted;
+
+    @Column(name = CHANGED_AT_FIELD)
+    private long changedAt;
+
+    public static Change upsert(Type type, Long entityId) {
+        return Change.builder().type(type).entityId(entityId).build();
+    }
+
+    public static Change delete(Type type, Long entityId) {
+        return Change.builder().type(type).entityId(entityId).deleted(true).build();
+    }
+}
@@ -2,12 +2,16 @@ package simple.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import simple.id.PooledSequenceIdGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.Size;
 
 @Entity
-@Builder
+@Builder(toBuilder = true)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -19,12 +23,19 @@ public class Comment {
     public static final String COMMENT_TEXT_FIELD = "text";
     public static final String COMMENT_LIKES_FIELD = "likes";
     public static final String POST_FIELD = "post";
+    public static final String COMMENT_SEQUENCE = "comment_seq";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = COMMENT_SEQUENCE)
+    @GenericGenerator(name = COMMENT_SEQUENCE, strategy = PooledSequenceIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = COMMENT_SEQUENCE))
     @Column(name = COMMENT_ID_FIELD)
     private Long id;
 
+    @Version
+    @JsonIgnore
+    private Long version;
+
     @Column(name = COMMENT_TEXT_FIELD)
     @Size(min = 1, max = 400)
     private String text;
@@ -0,0 +1,14 @@
+package simple.entity;
+
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = CommentLikers.TABLE)
+@NoArgsConstructor
+public class CommentLikers extends LikerSketch {
+
+    public static final String TABLE = "comment_likers";
+}
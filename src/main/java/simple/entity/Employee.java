@@ -1,8 +1,14 @@
 package simple.entity;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import simple.id.PooledSequenceIdGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.Size;
@@ -12,11 +18,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@BatchSize(size = 100)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @EqualsAndHashCode
 public class Employee {
 
@@ -25,12 +32,20 @@ public class Employee {
     public static final String LAST_NAME_FIELD = "lastName";
     public static final String CREATED_AT_FIELD = "createdAt";
     public static final String ISSUES_FIELD = "issues";
+    public static final String ISSUE_COUNT_FIELD = "issueCount";
+    public static final String EMPLOYEE_SEQUENCE = "employee_seq";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(generator = EMPLOYEE_SEQUENCE)
+    @GenericGenerator(name = EMPLOYEE_SEQUENCE, strategy = PooledSequenceIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = EMPLOYEE_SEQUENCE))
     @Column(name = ID_FIELD)
     private Long id;
 
+    @Version
+    @JsonIgnore
+    private Long version;
+
     @Column(name = NAME_FIELD)
     @Size(min = 1, max = 20)
     private String name;
@@ -42,8 +57,12 @@ public class Employee {
     @Column(name = CREATED_AT_FIELD)
     private String createdAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy | HH:mm:ss"));
 
-    @OneToMany
-    @JoinColumn(name = ISSUES_FIELD)
+    @Column(name = ISSUE_COUNT_FIELD, columnDefinition = "bigint default 0 not null", insertable = false, updatable = false)
+    @JsonIgnore
+    private long issueCount;
+
+    @OneToMany(mappedBy = Issue.USER_FIELD)
+    @BatchSize(size = 100)
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
     private List<Issue> issues;
 
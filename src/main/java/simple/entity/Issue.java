@@ -4,6 +4,11 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import simple.id.PooledSequenceIdGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.Size;
@@ -11,7 +16,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Builder
+@BatchSize(size = 100)
+@Builder(toBuilder = true)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -23,12 +29,22 @@ public class Issue {
     public static final String TITLE_FIELD = "title";
     public static final String DESCRIPTION_FIELD = "description";
     public static final String USER_FIELD = "employee";
+    public static final String COMMENTS_FIELD = "comments";
+    public static final String COMMENT_COUNT_FIELD = "commentCount";
+    public static final String LIKE_COUNT_FIELD = "likeCount";
+    public static final String ISSUE_SEQUENCE = "issue_seq";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = ISSUE_SEQUENCE)
+    @GenericGenerator(name = ISSUE_SEQUENCE, strategy = PooledSequenceIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = ISSUE_SEQUENCE))
     @Column(name = ID_FIELD)
     private Long id;
 
+    @Version
+    @JsonIgnore
+    private Long version;
+
     @Column(name = TITLE_FIELD)
     @Size(min = 1, max = 100)
     private String title;
@@ -37,12 +53,22 @@ public class Issue {
     @Size(min = 1, max = 1000)
     private String description;
 
+    @Column(name = COMMENT_COUNT_FIELD, columnDefinition = "bigint default 0 not null", insertable = false, updatable = false)
+    @JsonIgnore
+    private long commentCount;
+
+    @Column(name = LIKE_COUNT_FIELD, columnDefinition = "bigint default 0 not null", insertable = false, updatable = false)
+    @JsonIgnore
+    private long likeCount;
+
     @ManyToOne
     @JoinColumn(name = USER_FIELD)
     @JsonIgnore
     private Employee employee;
 
-    @OneToMany(mappedBy = "issue", cascade = CascadeType.ALL, orphanRemoval = true)
+    // no merge cascade or orphan removal, saving a cached issue copy must not touch its comments
+    @OneToMany(mappedBy = "issue", cascade = {CascadeType.PERSIST, CascadeType.REMOVE})
+    @BatchSize(size = 100)
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
     private List<Comment> comments;
 
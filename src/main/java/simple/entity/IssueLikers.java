@@ -0,0 +1,14 @@
+package simple.entity;
+
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = IssueLikers.TABLE)
+@NoArgsConstructor
+public class IssueLikers extends LikerSketch {
+
+    public static final String TABLE = "issue_likers";
+}
@@ -0,0 +1,29 @@
+package simple.entity;
+
+import lombok.*;
+import simple.counter.HyperLogLog;
+
+import javax.persistence.*;
+
+/**
+ * HyperLogLog sketch of the likers of a comment or an issue, keyed by its id. Kept in tables of
+ * their own so that reads of comments and issues never load it. Mapped for the schema only,
+ * {@link simple.counter.UniqueLikerCounter} reads and writes the rows over JDBC.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public abstract class LikerSketch {
+
+    public static final String ID_FIELD = "id";
+    public static final String LIKERS_FIELD = "likers";
+
+    @Id
+    @Column(name = ID_FIELD)
+    private Long id;
+
+    @Column(name = LIKERS_FIELD, length = HyperLogLog.MAX_SERIALIZED_SIZE, nullable = false)
+    private byte[] likers;
+}
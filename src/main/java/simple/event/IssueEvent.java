@@ -0,0 +1,49 @@
+package simple.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import simple.entity.Comment;
+import simple.entity.Issue;
+
+@Getter
+@AllArgsConstructor
+public class IssueEvent {
+
+    public static final String ISSUE_CREATED = "issue-created";
+    public static final String ISSUE_UPDATED = "issue-updated";
+    public static final String ISSUE_DELETED = "issue-deleted";
+    public static final String COMMENT_CREATED = "comment-created";
+    public static final String COMMENT_DELETED = "comment-deleted";
+
+    private String type;
+    private Long issueId;
+    private Long commentId;
+    private Object data;
+
+    public static IssueEvent issueCreated(Issue issue) {
+        return new IssueEvent(ISSUE_CREATED, issue.getId(), null, withoutComments(issue));
+    }
+
+    public static IssueEvent issueUpdated(Issue issue) {
+        return new IssueEvent(ISSUE_UPDATED, issue.getId(), null, withoutComments(issue));
+    }
+
+    public static IssueEvent issueDeleted(Long issueId) {
+        return new IssueEvent(ISSUE_DELETED, issueId, null, null);
+    }
+
+    public static IssueEvent commentCreated(Long issueId, Comment comment) {
+        return new IssueEvent(COMMENT_CREATED, issueId, comment.getId(), comment);
+    }
+
+    public static IssueEvent commentDeleted(Long issueId, Long commentId) {
+        return new IssueEvent(COMMENT_DELETED, issueId, commentId, null);
+    }
+
+    /**
+     * Comments have their own events, and the collection may not be loaded once the transaction ended.
+     */
+    private static Issue withoutComments(Issue issue) {
+        return issue.toBuilder().comments(null).build();
+    }
+}
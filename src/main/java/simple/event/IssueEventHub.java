@@ -0,0 +1,142 @@
+package simple.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static simple.service.ServiceUtils.afterCommit;
+
+/**
+ * Fans issue and comment events out to Server-Sent Events subscribers. Publishing only offers the
+ * event to a bounded queue per subscriber, and every subscriber is drained by its own task on the
+ * bounded-elastic scheduler, so a slow client never blocks a writer or another client. When a
+ * queue overflows, its events are coalesced into one {@code resync} event that tells the client
+ * to reload.
+ */
+@Component
+public class IssueEventHub {
+
+    public static final String RESYNC = "resync";
+
+    @Value("${app.events.buffer-size:256}")
+    private int bufferSize = 256;
+
+    @Value("${app.events.timeout-ms:1800000}")
+    private long timeoutMs = 1_800_000;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param issueId issue whose edits and comments are sent, or {@code null} for events of all issues
+     */
+    public SseEmitter subscribe(Long issueId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(issueId, emitter, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // commits the response headers right away
+        subscriber.offer(SseEmitter.event().comment("subscribed"));
+        return emitter;
+    }
+
+    /**
+     * Sends the event once the current transaction commits, or right away without one.
+     */
+    public void publish(IssueEvent event) {
+        afterCommit(() -> deliver(event));
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        // also finds subscribers that went away without closing the connection
+        subscribers.forEach(subscriber -> subscriber.offer(SseEmitter.event().comment("heartbeat")));
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private void deliver(IssueEvent event) {
+        String id = String.valueOf(sequence.incrementAndGet());
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.issueId == null || subscriber.issueId.equals(event.getIssueId())) {
+                subscriber.offer(SseEmitter.event()
+                        .id(id)
+                        .name(event.getType())
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final Long issueId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        private Subscriber(Long issueId, SseEmitter emitter, int bufferSize) {
+            this.issueId = issueId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                queue.clear();
+                overflowed = true;
+            }
+            if (draining.compareAndSet(false, true)) {
+                Schedulers.boundedElastic().schedule(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    if (overflowed) {
+                        overflowed = false;
+                        emitter.send(SseEmitter.event().name(RESYNC).data(RESYNC));
+                    }
+                    SseEmitter.SseEventBuilder event = queue.poll();
+                    if (event != null) {
+                        emitter.send(event);
+                        continue;
+                    }
+                    draining.set(false);
+                    // an event offered after the last poll may have found the flag still set
+                    if ((queue.isEmpty() && !overflowed) || !draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                queue.clear();
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
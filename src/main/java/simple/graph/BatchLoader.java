@@ -0,0 +1,53 @@
+package simple.graph;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Collects the parent keys of one level of a graph and loads the children of all of them with a
+ * single call of the batch function, in the spirit of a DataLoader. Keys are deduplicated and
+ * loaded once, children are grouped back by the key they return.
+ */
+public final class BatchLoader<K, V> {
+
+    private final Function<List<K>, List<V>> batchFunction;
+    private final Function<V, K> keyOf;
+    private final Set<K> queued = new LinkedHashSet<>();
+    private final Map<K, List<V>> loaded = new LinkedHashMap<>();
+
+    public BatchLoader(Function<List<K>, List<V>> batchFunction, Function<V, K> keyOf) {
+        this.batchFunction = batchFunction;
+        this.keyOf = keyOf;
+    }
+
+    public void load(K key) {
+        if (key != null && !loaded.containsKey(key)) {
+            queued.add(key);
+        }
+    }
+
+    /**
+     * Loads the children of every key queued since the last dispatch, with at most one call of the batch function.
+     */
+    public void dispatch() {
+        if (queued.isEmpty()) {
+            return;
+        }
+        List<K> keys = new ArrayList<>(queued);
+        queued.clear();
+        keys.forEach(key -> loaded.put(key, new ArrayList<>()));
+        for (V value : batchFunction.apply(keys)) {
+            List<V> children = loaded.get(keyOf.apply(value));
+            if (children != null) {
+                children.add(value);
+            }
+        }
+    }
+
+    /**
+     * Returns the children of a dispatched key, empty if it has none.
+     */
+    public List<V> get(K key) {
+        return loaded.getOrDefault(key, List.of());
+    }
+}
@@ -0,0 +1,131 @@
+package simple.graph;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed selection of fields such as {@code name,issues(title,comments(text,likes))}. Every field
+ * may carry a nested selection in parentheses, the order of the fields is kept.
+ */
+public final class FieldSelection {
+
+    private final Map<String, FieldSelection> fields;
+
+    private FieldSelection(Map<String, FieldSelection> fields) {
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the selection is empty or malformed
+     */
+    public static FieldSelection parse(String selection) {
+        if (selection == null) {
+            throw new IllegalArgumentException("The field selection is required");
+        }
+        Parser parser = new Parser(selection);
+        FieldSelection result = parser.parseFields(0);
+        if (parser.position < selection.length()) {
+            throw parser.error("Unexpected '" + selection.charAt(parser.position) + "'");
+        }
+        return result;
+    }
+
+    public Set<String> names() {
+        return fields.keySet();
+    }
+
+    public boolean contains(String name) {
+        return fields.containsKey(name);
+    }
+
+    /**
+     * Returns the nested selection of a field, empty if the field has none, {@code null} if it is not selected.
+     */
+    public FieldSelection get(String name) {
+        return fields.get(name);
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        fields.forEach((name, nested) -> {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(name);
+            if (!nested.isEmpty()) {
+                builder.append('(').append(nested).append(')');
+            }
+        });
+        return builder.toString();
+    }
+
+    private static final class Parser {
+
+        private static final int MAX_DEPTH = 16;
+
+        private final String input;
+        private int position;
+
+        private Parser(String input) {
+            this.input = input;
+        }
+
+        private FieldSelection parseFields(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw error("The field selection is nested deeper than " + MAX_DEPTH + " levels");
+            }
+            Map<String, FieldSelection> fields = new LinkedHashMap<>();
+            while (true) {
+                String name = parseName();
+                FieldSelection nested = new FieldSelection(Map.of());
+                skipWhitespace();
+                if (position < input.length() && input.charAt(position) == '(') {
+                    position++;
+                    nested = parseFields(depth + 1);
+                    skipWhitespace();
+                    if (position >= input.length() || input.charAt(position) != ')') {
+                        throw error("Missing ')'");
+                    }
+                    position++;
+                    skipWhitespace();
+                }
+                if (fields.put(name, nested) != null) {
+                    throw error("The field '" + name + "' is selected twice");
+                }
+                if (position >= input.length() || input.charAt(position) != ',') {
+                    return new FieldSelection(fields);
+                }
+                position++;
+            }
+        }
+
+        private String parseName() {
+            skipWhitespace();
+            int start = position;
+            while (position < input.length() && Character.isJavaIdentifierPart(input.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error("A field name is expected");
+            }
+            return input.substring(start, position);
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of the field selection");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package simple.graph;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import simple.counter.CommentLikeCounter;
+import simple.entity.Comment;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static simple.service.ServiceUtils.findAllInChunks;
+
+/**
+ * Loads field selections as tuple projections, so only the selected columns are read and no entity
+ * is materialized. Children are loaded breadth-first by a {@link BatchLoader}: one query per level
+ * and per chunk of parent ids, whatever the number of parents. Every node is a map of the selected
+ * fields plus the id, serialized by the caller in one pass.
+ */
+@Component
+@Transactional(readOnly = true)
+public class GraphFetcher {
+
+    private static final String ID = "id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private CommentLikeCounter commentLikeCounter;
+
+    /**
+     * Returns the selected fields of the entity, {@code null} if it does not exist.
+     * The selection should come from {@link GraphType#select(String)} of the same type.
+     */
+    public Map<String, Object> findById(GraphType type, Long id, FieldSelection selection) {
+        List<Map<String, Object>> nodes = find(type, selection, (builder, root) -> builder.equal(root.get(ID), id), null);
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    /**
+     * Returns the selected fields of the entities found among the ids, keyed by id.
+     */
+    public Map<Long, Map<String, Object>> findByIds(GraphType type, List<Long> ids, FieldSelection selection) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return findAllInChunks(ids, chunk -> find(type, selection, (builder, root) -> root.get(ID).in(chunk), null)).stream()
+                .collect(Collectors.toMap(node -> (Long) node.get(ID), node -> node));
+    }
+
+    public List<Map<String, Object>> findAll(GraphType type, FieldSelection selection) {
+        return find(type, selection, null, null);
+    }
+
+    /**
+     * Returns up to {@code limit} entities with an id greater than {@code after}, ordered by id.
+     */
+    public List<Map<String, Object>> findPage(GraphType type, Long after, int limit, FieldSelection selection) {
+        return find(type, selection, (builder, root) -> builder.greaterThan(root.<Long>get(ID), after), limit);
+    }
+
+    /**
+     * Returns the children of a parent, such as the issues of an employee, ordered by id.
+     */
+    public List<Map<String, Object>> findByParentId(GraphType type, Long parentId, FieldSelection selection) {
+        return find(type, selection, (builder, root) -> builder.equal(root.get(type.getParentField()).get(ID), parentId), null);
+    }
+
+    private List<Map<String, Object>> find(GraphType type, FieldSelection selection,
+                                           BiFunction<CriteriaBuilder, Root<?>, Predicate> restriction, Integer limit) {
+        List<Node> nodes = nodes(type, selection, query(type, selection, false, restriction, limit), false);
+        List<Map<String, Object>> result = new ArrayList<>(nodes.size());
+        nodes.forEach(node -> result.add(node.fields));
+        return result;
+    }
+
+    private List<Node> children(GraphType type, FieldSelection selection, List<Long> parentIds) {
+        List<Tuple> rows = findAllInChunks(parentIds, chunk -> query(type, selection, true,
+                (builder, root) -> root.get(type.getParentField()).get(ID).in(chunk), null));
+        return nodes(type, selection, rows, true);
+    }
+
+    /**
+     * Selects the id, the parent id if asked for, then the selected plain fields in selection order.
+     */
+    private List<Tuple> query(GraphType type, FieldSelection selection, boolean withParent,
+                              BiFunction<CriteriaBuilder, Root<?>, Predicate> restriction, Integer limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = query.from(type.getEntityClass());
+        List<Selection<?>> columns = new ArrayList<>();
+        columns.add(root.get(ID));
+        if (withParent) {
+            columns.add(root.get(type.getParentField()).get(ID));
+        }
+        fields(type, selection).forEach(field -> columns.add(root.get(field)));
+        query.multiselect(columns).orderBy(builder.asc(root.get(ID)));
+        if (restriction != null) {
+            query.where(restriction.apply(builder, root));
+        }
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (limit != null) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    private List<Node> nodes(GraphType type, FieldSelection selection, List<Tuple> rows, boolean withParent) {
+        List<String> fields = fields(type, selection);
+        int offset = withParent ? 2 : 1;
+        List<Node> nodes = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long id = (Long) row.get(0);
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put(ID, id);
+            for (int i = 0; i < fields.size(); i++) {
+                node.put(fields.get(i), value(type, fields.get(i), id, row.get(offset + i)));
+            }
+            nodes.add(new Node(withParent ? (Long) row.get(1) : null, node));
+        }
+
+        FieldSelection childSelection = childSelection(type, selection);
+        if (childSelection == null || nodes.isEmpty()) {
+            return nodes;
+        }
+        BatchLoader<Long, Node> children = new BatchLoader<>(
+                parentIds -> children(type.getChild(), childSelection, parentIds),
+                child -> child.parentId);
+        nodes.forEach(node -> children.load((Long) node.fields.get(ID)));
+        children.dispatch();
+        for (Node node : nodes) {
+            List<Map<String, Object>> childNodes = new ArrayList<>();
+            children.get((Long) node.fields.get(ID)).forEach(child -> childNodes.add(child.fields));
+            node.fields.put(type.getRelation(), childNodes);
+        }
+        return nodes;
+    }
+
+    private Object value(GraphType type, String field, Long id, Object value) {
+        if (type == GraphType.COMMENT && field.equals(Comment.COMMENT_LIKES_FIELD)) {
+            return (int) Math.max(0, (Integer) value + commentLikeCounter.getPendingDelta(id));
+        }
+        return value;
+    }
+
+    /**
+     * Returns the selected plain fields other than the id, which every node has.
+     */
+    private static List<String> fields(GraphType type, FieldSelection selection) {
+        List<String> fields = new ArrayList<>();
+        for (String field : selection.names()) {
+            if (!field.equals(ID) && !field.equals(type.getRelation())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * A relation selected without nested fields gets all the plain fields of its type.
+     */
+    private static FieldSelection childSelection(GraphType type, FieldSelection selection) {
+        if (type.getRelation() == null || !selection.contains(type.getRelation())) {
+            return null;
+        }
+        FieldSelection childSelection = selection.get(type.getRelation());
+        if (!childSelection.isEmpty()) {
+            return childSelection;
+        }
+        return FieldSelection.parse(String.join(",", type.getChild().getFields()));
+    }
+
+    private static final class Node {
+
+        private final Long parentId;
+        private final Map<String, Object> fields;
+
+        private Node(Long parentId, Map<String, Object> fields) {
+            this.parentId = parentId;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package simple.graph;
+
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.List;
+
+/**
+ * The plain fields of an entity that a field selection may name, with its child relation and the
+ * attribute that points back from a child to its parent. The id is part of every projection.
+ */
+public final class GraphType {
+
+    public static final GraphType COMMENT = new GraphType("comment", Comment.class, "issue",
+            List.of(Comment.COMMENT_ID_FIELD, Comment.COMMENT_TEXT_FIELD, Comment.COMMENT_LIKES_FIELD), null, null);
+    public static final GraphType ISSUE = new GraphType("issue", Issue.class, Issue.USER_FIELD,
+            List.of(Issue.ID_FIELD, Issue.TITLE_FIELD, Issue.DESCRIPTION_FIELD), Issue.COMMENTS_FIELD, COMMENT);
+    public static final GraphType EMPLOYEE = new GraphType("employee", Employee.class, null,
+            List.of(Employee.ID_FIELD, Employee.NAME_FIELD, Employee.LAST_NAME_FIELD, Employee.CREATED_AT_FIELD),
+            Employee.ISSUES_FIELD, ISSUE);
+
+    private final String name;
+    private final Class<?> entityClass;
+    private final String parentField;
+    private final List<String> fields;
+    private final String relation;
+    private final GraphType child;
+
+    private GraphType(String name, Class<?> entityClass, String parentField, List<String> fields,
+                      String relation, GraphType child) {
+        this.name = name;
+        this.entityClass = entityClass;
+        this.parentField = parentField;
+        this.fields = fields;
+        this.relation = relation;
+        this.child = child;
+    }
+
+    /**
+     * Parses and validates a selection, {@code null} selects every field down to the leaves.
+     *
+     * @throws IllegalArgumentException if the selection is malformed or names a field the type does not have
+     */
+    public FieldSelection select(String selection) {
+        FieldSelection result = FieldSelection.parse(selection == null ? getDefaultSelection() : selection);
+        validate(result);
+        return result;
+    }
+
+    public String getDefaultSelection() {
+        String selection = String.join(",", fields);
+        return child == null ? selection : selection + "," + relation + "(" + child.getDefaultSelection() + ")";
+    }
+
+    Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    String getParentField() {
+        return parentField;
+    }
+
+    List<String> getFields() {
+        return fields;
+    }
+
+    String getRelation() {
+        return relation;
+    }
+
+    GraphType getChild() {
+        return child;
+    }
+
+    private void validate(FieldSelection selection) {
+        for (String field : selection.names()) {
+            FieldSelection nested = selection.get(field);
+            if (field.equals(relation)) {
+                if (!nested.isEmpty()) {
+                    child.validate(nested);
+                }
+                continue;
+            }
+            if (!fields.contains(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "' of " + name);
+            }
+            if (!nested.isEmpty()) {
+                throw new IllegalArgumentException("The field '" + field + "' of " + name + " has no nested fields");
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package simple.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out ids from blocks of {@code blockSize} consecutive values. Taking an id from the
+ * current block is a single atomic increment; only the thread that finds the block exhausted
+ * fetches the next one, everybody else retries against the new block.
+ */
+public final class IdBlockAllocator {
+
+    private final int blockSize;
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(0, 0));
+    private final Lock refillLock = new ReentrantLock();
+
+    public IdBlockAllocator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size should be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next id. {@code nextBlockStart} is asked for the first value of a new block
+     * whenever the current one is used up, e.g. by reading a sequence incremented by the block size.
+     */
+    public long next(LongSupplier nextBlockStart) {
+        while (true) {
+            Block block = current.get();
+            long id = block.next.getAndIncrement();
+            if (id < block.limit) {
+                return id;
+            }
+
+            refillLock.lock();
+            try {
+                if (current.get() == block) {
+                    long start = nextBlockStart.getAsLong();
+                    current.set(new Block(start, start + blockSize));
+                }
+            } finally {
+                refillLock.unlock();
+            }
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        private Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
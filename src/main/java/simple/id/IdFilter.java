@@ -0,0 +1,149 @@
+package simple.id;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filters over the ids of employees and issues, so lookups of ids that were never created are
+ * answered without a query. A filter cannot forget an id, deletes only count towards a rebuild from
+ * the table, which also grows a filter that holds more ids than it was sized for.
+ * <p>
+ * Ids are added right after the insert and again after the commit. An id added while a rebuild
+ * scans the table goes into both filters, so the new filter misses no id committed meanwhile.
+ */
+@Component
+public class IdFilter {
+
+    private static final long MIN_STALE_BEFORE_REBUILD = 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.id.filter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.id.filter.expected-insertions:100000}")
+    private long expectedInsertions = 100_000;
+
+    @Value("${app.id.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    private final IdSet employees = new IdSet("employee");
+    private final IdSet issues = new IdSet("issue");
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        employees.rebuild();
+        issues.rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.id.filter.check-interval-ms:60000}")
+    public void rebuildStale() {
+        if (employees.isStale()) {
+            employees.rebuild();
+        }
+        if (issues.isStale()) {
+            issues.rebuild();
+        }
+    }
+
+    /**
+     * Returns {@code true} only if the employee was never created. {@code false} means it may exist.
+     */
+    public boolean isMissingEmployee(Long id) {
+        return employees.isMissing(id);
+    }
+
+    public boolean isMissingIssue(Long id) {
+        return issues.isMissing(id);
+    }
+
+    public void addEmployee(Long id) {
+        employees.add(id);
+    }
+
+    public void addIssue(Long id) {
+        issues.add(id);
+    }
+
+    public void removeEmployee(Long id) {
+        employees.remove();
+    }
+
+    public void removeIssue(Long id) {
+        issues.remove();
+    }
+
+    private final class IdSet {
+
+        private final String table;
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong removed = new AtomicLong();
+
+        private volatile BloomFilter current;
+        private volatile BloomFilter building;
+        private long capacity;
+
+        private IdSet(String table) {
+            this.table = table;
+        }
+
+        private boolean isMissing(Long id) {
+            BloomFilter filter = current;
+            return filter != null && id != null && !filter.mightContain(id);
+        }
+
+        private void add(Long id) {
+            if (id == null) {
+                return;
+            }
+            added.incrementAndGet();
+            // building before current: a rebuild finishing in between has already made its filter current
+            BloomFilter next = building;
+            if (next != null) {
+                next.add(id);
+            }
+            BloomFilter filter = current;
+            if (filter != null) {
+                filter.add(id);
+            }
+        }
+
+        private void remove() {
+            removed.incrementAndGet();
+        }
+
+        private synchronized boolean isStale() {
+            if (current == null) {
+                return false;
+            }
+            return added.get() > capacity || removed.get() > Math.max(MIN_STALE_BEFORE_REBUILD, capacity / 4);
+        }
+
+        private synchronized void rebuild() {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+            long size = count == null ? 0 : count;
+            long nextCapacity = Math.max(expectedInsertions, size * 2);
+            BloomFilter next = new BloomFilter(nextCapacity, falsePositiveRate);
+            building = next;
+            added.set(size);
+            removed.set(0);
+            jdbcTemplate.query("SELECT id FROM " + table, rs -> {
+                next.add(rs.getLong(1));
+            });
+            capacity = nextCapacity;
+            current = next;
+            building = null;
+        }
+    }
+}
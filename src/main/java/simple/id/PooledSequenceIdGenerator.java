@@ -0,0 +1,63 @@
+package simple.id;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * Sequence generator that reserves {@code app.id.block-size} ids per database round trip.
+ * <p>
+ * The sequence is incremented by the block size and a value {@code v} stands for the ids
+ * {@code [v, v + blockSize)} (Hibernate's "pooled-lo" layout), so the schema is the same in
+ * both modes:
+ * <ul>
+ *     <li>{@code app.id.mode=pooled} (default) uses Hibernate's pooled-lo optimizer;</li>
+ *     <li>{@code app.id.mode=allocator} hands out ids through a lock-free {@link IdBlockAllocator}.</li>
+ * </ul>
+ * Both settings are read from the Hibernate properties, i.e. {@code spring.jpa.properties.app.id.*}.
+ */
+public class PooledSequenceIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "simple.id.PooledSequenceIdGenerator";
+    public static final String BLOCK_SIZE_SETTING = "app.id.block-size";
+    public static final String MODE_SETTING = "app.id.mode";
+    public static final String ALLOCATOR_MODE = "allocator";
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private IdBlockAllocator allocator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configuration = serviceRegistry.getService(ConfigurationService.class);
+        int blockSize = configuration.getSetting(BLOCK_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_BLOCK_SIZE);
+        String mode = configuration.getSetting(MODE_SETTING, StandardConverters.STRING, "pooled");
+        if (blockSize < 1) {
+            throw new MappingException("The '" + BLOCK_SIZE_SETTING + "' setting should be positive");
+        }
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+
+        if (ALLOCATOR_MODE.equals(mode)) {
+            allocator = new IdBlockAllocator(blockSize);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (allocator == null) {
+            return super.generate(session, object);
+        }
+        return allocator.next(() -> getDatabaseStructure().buildCallback(session).getNextValue().makeValue().longValue());
+    }
+}
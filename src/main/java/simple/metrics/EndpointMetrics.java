@@ -0,0 +1,137 @@
+package simple.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Latency histograms and request counters per controller method.
+ * <p>
+ * Recording is wait-free and does not allocate: the per-method stats are created on the
+ * first request and then only looked up, latencies go to an HdrHistogram {@link Recorder} and
+ * counters to {@link LongAdder}s. Readers swap the recorder's interval histogram into a
+ * cumulative one, so reading never blocks recording.
+ */
+@Component
+public class EndpointMetrics {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final Map<Method, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final long startedAt = System.nanoTime();
+
+    public void record(Method method, long elapsedNanos, int status, boolean failed) {
+        EndpointStats stats = endpoints.get(method);
+        if (stats == null) {
+            stats = endpoints.computeIfAbsent(method, EndpointStats::new);
+        }
+        stats.latency.recordValue(Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), 0), HIGHEST_TRACKABLE_MICROS));
+        stats.requests.increment();
+        if (failed || status >= 500) {
+            stats.errors.increment();
+        } else if (status >= 400) {
+            stats.clientErrors.increment();
+        }
+    }
+
+    /**
+     * Returns latency percentiles in milliseconds and request counters per endpoint, sorted by name.
+     */
+    public Map<String, Map<String, Object>> getSnapshot() {
+        double uptimeSeconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        for (EndpointStats stats : endpoints.values()) {
+            Histogram histogram = stats.cumulativeHistogram();
+            long requests = stats.requests.sum();
+            long errors = stats.errors.sum();
+
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("count", requests);
+            endpoint.put("errors", errors);
+            endpoint.put("clientErrors", stats.clientErrors.sum());
+            endpoint.put("errorRate", requests == 0 ? 0.0 : (double) errors / requests);
+            endpoint.put("meanRate", requests / uptimeSeconds);
+            endpoint.put("p50", toMillis(histogram.getValueAtPercentile(50.0)));
+            endpoint.put("p99", toMillis(histogram.getValueAtPercentile(99.0)));
+            endpoint.put("p999", toMillis(histogram.getValueAtPercentile(99.9)));
+            endpoint.put("max", toMillis(histogram.getMaxValue()));
+            snapshot.put(stats.name, endpoint);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Renders the same data in the Prometheus text exposition format.
+     */
+    public String getPrometheusText() {
+        List<EndpointStats> sorted = new ArrayList<>(endpoints.values());
+        sorted.sort(Comparator.comparing(stats -> stats.name));
+
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP app_endpoint_latency_seconds Latency of controller methods.\n");
+        text.append("# TYPE app_endpoint_latency_seconds summary\n");
+        for (EndpointStats stats : sorted) {
+            Histogram histogram = stats.cumulativeHistogram();
+            for (double quantile : QUANTILES) {
+                text.append("app_endpoint_latency_seconds{endpoint=\"").append(stats.name)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(toSeconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            text.append("app_endpoint_latency_seconds_sum{endpoint=\"").append(stats.name).append("\"} ")
+                    .append(toSeconds(histogram.getMean()) * histogram.getTotalCount()).append('\n');
+            text.append("app_endpoint_latency_seconds_count{endpoint=\"").append(stats.name).append("\"} ")
+                    .append(histogram.getTotalCount()).append('\n');
+        }
+        appendCounter(text, sorted, "app_endpoint_requests_total", "Requests handled by controller methods.", stats -> stats.requests);
+        appendCounter(text, sorted, "app_endpoint_errors_total", "Requests that failed with a server error.", stats -> stats.errors);
+        appendCounter(text, sorted, "app_endpoint_client_errors_total", "Requests rejected with a client error.", stats -> stats.clientErrors);
+        return text.toString();
+    }
+
+    private static void appendCounter(StringBuilder text, List<EndpointStats> endpoints, String name, String help,
+                                      Function<EndpointStats, LongAdder> counter) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        for (EndpointStats stats : endpoints) {
+            text.append(name).append("{endpoint=\"").append(stats.name).append("\"} ")
+                    .append(counter.apply(stats).sum()).append('\n');
+        }
+    }
+
+    private static double toMillis(double micros) {
+        return micros / 1_000.0;
+    }
+
+    private static double toSeconds(double micros) {
+        return micros / 1_000_000.0;
+    }
+
+    private static final class EndpointStats {
+        private final String name;
+        private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram cumulative = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private Histogram interval;
+
+        private EndpointStats(Method method) {
+            this.name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+
+        private synchronized Histogram cumulativeHistogram() {
+            interval = latency.getIntervalHistogram(interval);
+            cumulative.add(interval);
+            return cumulative.copy();
+        }
+    }
+}
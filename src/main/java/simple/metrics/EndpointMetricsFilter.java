@@ -0,0 +1,93 @@
+package simple.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+/**
+ * Times every request and records it against the controller method that handled it. An async
+ * request is recorded when its response completes, with the final status.
+ * Requests that never reach a controller (rejected by security, static resources) are not recorded.
+ */
+@Component
+public class EndpointMetricsFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Value("${app.metrics.enabled:true}")
+    private boolean enabled = true;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            if (handler instanceof HandlerMethod) {
+                Method method = ((HandlerMethod) handler).getMethod();
+                if (!failed && request.isAsyncStarted()) {
+                    // streams, emitters and futures are timed until the response completes, the async dispatch is not filtered
+                    request.getAsyncContext().addListener(new CompletionListener(method, start, response));
+                } else {
+                    endpointMetrics.record(method, System.nanoTime() - start, response.getStatus(), failed);
+                }
+            }
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final Method method;
+        private final long start;
+        private final HttpServletResponse response;
+        private volatile boolean failed;
+
+        private CompletionListener(Method method, long start, HttpServletResponse response) {
+            this.method = method;
+            this.start = start;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            endpointMetrics.record(method, System.nanoTime() - start, response.getStatus(), failed);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package simple.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import simple.entity.Change;
+
+import java.util.List;
+
+public interface ChangeRepository extends JpaRepository<Change, Long> {
+    List<Change> findByRevisionBetweenOrderByRevisionAsc(Long from, Long to, Pageable pageable);
+}
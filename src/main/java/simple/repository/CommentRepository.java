@@ -1,11 +1,46 @@
 package simple.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import simple.dto.VersionStamp;
 import simple.entity.Comment;
 import simple.entity.Issue;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    @EntityGraph(attributePaths = {"issue", "issue.employee"})
     List<Comment> findByIssue(Issue issue);
+
+    @EntityGraph(attributePaths = {"issue", "issue.employee"})
+    List<Comment> findByIssueIdInOrderByIdAsc(Collection<Long> issueIds);
+
+    @EntityGraph(attributePaths = {"issue", "issue.employee"})
+    List<Comment> findByIssueAndIdGreaterThanOrderByIdAsc(Issue issue, Long id, Pageable pageable);
+
+    List<Comment> findByOrderByLikesDescIdAsc(Pageable pageable);
+
+    List<Comment> findByIssueOrderByLikesDescIdAsc(Issue issue, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Comment> streamAllByOrderByIdAsc();
+
+    @Query("select new simple.dto.VersionStamp(count(c), sum(c.version), sum(c.id), max(c.id)) from Comment c where c.issue.id = :issueId")
+    VersionStamp findVersionStampByIssueId(@Param("issueId") Long issueId);
+
+    @Query("select new simple.dto.VersionStamp(count(c), sum(c.version), sum(c.id), max(c.id)) from Comment c where c.issue.employee.id = :employeeId")
+    VersionStamp findVersionStampByEmployeeId(@Param("employeeId") Long employeeId);
+
+    @Query("select new simple.dto.VersionStamp(count(c), sum(c.version), sum(c.id), max(c.id)) from Comment c")
+    VersionStamp findVersionStamp();
 }
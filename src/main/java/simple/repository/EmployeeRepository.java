@@ -1,7 +1,29 @@
 package simple.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import simple.dto.VersionStamp;
 import simple.entity.Employee;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+    List<Employee> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Employee> streamAllByOrderByIdAsc();
+
+    @Query("select new simple.dto.VersionStamp(count(e), sum(e.version), sum(e.id), max(e.id)) from Employee e where e.id = :id")
+    VersionStamp findVersionStampById(@Param("id") Long id);
+
+    @Query("select new simple.dto.VersionStamp(count(e), sum(e.version), sum(e.id), max(e.id)) from Employee e")
+    VersionStamp findVersionStamp();
 }
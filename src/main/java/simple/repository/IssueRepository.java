@@ -1,12 +1,52 @@
 package simple.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import simple.dto.VersionStamp;
 import simple.entity.Employee;
 import simple.entity.Issue;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface IssueRepository extends JpaRepository<Issue, Long> {
+    @Override
+    @EntityGraph(attributePaths = Issue.USER_FIELD)
+    List<Issue> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = Issue.USER_FIELD)
+    List<Issue> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(attributePaths = Issue.USER_FIELD)
     List<Issue> findByEmployee(Employee employee);
+
+    @EntityGraph(attributePaths = Issue.USER_FIELD)
+    List<Issue> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = Issue.USER_FIELD)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Issue> streamAllByOrderByIdAsc();
+
+    @Query("select i.id from Issue i join i.employee e where lower(i.title) like :pattern escape '\\' " +
+            "or lower(i.description) like :pattern escape '\\' or lower(e.name) like :pattern escape '\\' " +
+            "or lower(e.lastName) like :pattern escape '\\' order by i.id")
+    List<Long> findIdsByText(@Param("pattern") String pattern);
+
+    @Query("select new simple.dto.VersionStamp(count(i), sum(i.version), sum(i.id), max(i.id)) from Issue i where i.id = :id")
+    VersionStamp findVersionStampById(@Param("id") Long id);
+
+    @Query("select new simple.dto.VersionStamp(count(i), sum(i.version), sum(i.id), max(i.id)) from Issue i where i.employee.id = :employeeId")
+    VersionStamp findVersionStampByEmployeeId(@Param("employeeId") Long employeeId);
+
+    @Query("select new simple.dto.VersionStamp(count(i), sum(i.version), sum(i.id), max(i.id)) from Issue i")
+    VersionStamp findVersionStamp();
 }
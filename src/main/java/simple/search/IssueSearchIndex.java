@@ -0,0 +1,231 @@
+package simple.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.repository.EmployeeRepository;
+import simple.repository.IssueRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index answering the "lower-cased substring" contract of
+ * {@code IssueService.search} without touching the database.
+ * <p>
+ * Candidates come from intersecting the trigram posting lists of the query and are then
+ * verified against the stored lower-cased fields, so any substring (including ones spanning
+ * words, like "ogin fai") returns exactly what the full scan returns. Queries shorter than
+ * three characters are verified against every stored document.
+ */
+@Component
+public class IssueSearchIndex {
+
+    private static final int MIN_STALE_BEFORE_COMPACTION = 1024;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled = true;
+
+    private final Map<Long, IssueDocument> issues = new ConcurrentHashMap<>();
+    private final Map<Long, EmployeeDocument> employees = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> issuesByEmployee = new ConcurrentHashMap<>();
+
+    private volatile TrigramIndex issueTrigrams = new TrigramIndex();
+    private volatile TrigramIndex employeeTrigrams = new TrigramIndex();
+    private int staleIssues;
+    private int staleEmployees;
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        ready = false;
+        issues.clear();
+        employees.clear();
+        issuesByEmployee.clear();
+        issueTrigrams = new TrigramIndex();
+        employeeTrigrams = new TrigramIndex();
+        staleIssues = 0;
+        staleEmployees = 0;
+
+        employeeRepository.findAll().forEach(this::indexEmployee);
+        issueRepository.findAll().forEach(this::indexIssue);
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void indexIssue(Issue issue) {
+        if (!enabled || issue.getId() == null) {
+            return;
+        }
+        removeIssue(issue.getId());
+
+        Long employeeId = issue.getEmployee() == null ? null : issue.getEmployee().getId();
+        IssueDocument document = new IssueDocument(employeeId, lowerCase(issue.getTitle()), lowerCase(issue.getDescription()));
+        issues.put(issue.getId(), document);
+        issueTrigrams.add(issue.getId(), document.title, document.description);
+        if (employeeId != null) {
+            issuesByEmployee.computeIfAbsent(employeeId, key -> ConcurrentHashMap.newKeySet()).add(issue.getId());
+            if (issue.getEmployee().getName() != null && !employees.containsKey(employeeId)) {
+                indexEmployee(issue.getEmployee());
+            }
+        }
+    }
+
+    public synchronized void removeIssue(Long id) {
+        IssueDocument document = issues.remove(id);
+        if (document == null) {
+            return;
+        }
+        if (document.employeeId != null) {
+            Set<Long> employeeIssues = issuesByEmployee.get(document.employeeId);
+            if (employeeIssues != null) {
+                employeeIssues.remove(id);
+            }
+        }
+        if (++staleIssues > Math.max(MIN_STALE_BEFORE_COMPACTION, issues.size() / 4)) {
+            TrigramIndex compacted = new TrigramIndex();
+            issues.forEach((issueId, issue) -> compacted.add(issueId, issue.title, issue.description));
+            issueTrigrams = compacted;
+            staleIssues = 0;
+        }
+    }
+
+    public synchronized void indexEmployee(Employee employee) {
+        if (!enabled || employee.getId() == null) {
+            return;
+        }
+        removeEmployeeDocument(employee.getId());
+
+        EmployeeDocument document = new EmployeeDocument(lowerCase(employee.getName()), lowerCase(employee.getLastName()));
+        employees.put(employee.getId(), document);
+        employeeTrigrams.add(employee.getId(), document.name, document.lastName);
+    }
+
+    public synchronized void removeEmployee(Long id) {
+        removeEmployeeDocument(id);
+        issuesByEmployee.remove(id);
+    }
+
+    /**
+     * Returns ids of issues whose title, description, employee name or last name contains the
+     * lower-cased query, in ascending id order.
+     */
+    public List<Long> search(String query) {
+        String lowerCaseQuery = query.toLowerCase();
+        Set<Long> result = new TreeSet<>();
+
+        long[] issueCandidates = issueTrigrams.candidates(lowerCaseQuery);
+        if (issueCandidates == null) {
+            issues.forEach((id, issue) -> {
+                if (issue.matches(lowerCaseQuery)) {
+                    result.add(id);
+                }
+            });
+        } else {
+            for (long id : issueCandidates) {
+                IssueDocument issue = issues.get(id);
+                if (issue != null && issue.matches(lowerCaseQuery)) {
+                    result.add(id);
+                }
+            }
+        }
+
+        long[] employeeCandidates = employeeTrigrams.candidates(lowerCaseQuery);
+        if (employeeCandidates == null) {
+            employees.forEach((id, employee) -> {
+                if (employee.matches(lowerCaseQuery)) {
+                    addEmployeeIssues(id, result);
+                }
+            });
+        } else {
+            for (long id : employeeCandidates) {
+                EmployeeDocument employee = employees.get(id);
+                if (employee != null && employee.matches(lowerCaseQuery)) {
+                    addEmployeeIssues(id, result);
+                }
+            }
+        }
+
+        return new ArrayList<>(result);
+    }
+
+    private void addEmployeeIssues(Long employeeId, Set<Long> result) {
+        Set<Long> employeeIssues = issuesByEmployee.get(employeeId);
+        if (employeeIssues == null) {
+            return;
+        }
+        for (Long issueId : employeeIssues) {
+            IssueDocument issue = issues.get(issueId);
+            if (issue != null && employeeId.equals(issue.employeeId)) {
+                result.add(issueId);
+            }
+        }
+    }
+
+    private void removeEmployeeDocument(Long id) {
+        if (employees.remove(id) == null) {
+            return;
+        }
+        if (++staleEmployees > Math.max(MIN_STALE_BEFORE_COMPACTION, employees.size() / 4)) {
+            TrigramIndex compacted = new TrigramIndex();
+            employees.forEach((employeeId, employee) -> compacted.add(employeeId, employee.name, employee.lastName));
+            employeeTrigrams = compacted;
+            staleEmployees = 0;
+        }
+    }
+
+    private static boolean contains(String field, String query) {
+        return field != null && field.contains(query);
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+
+    private static final class IssueDocument {
+        private final Long employeeId;
+        private final String title;
+        private final String description;
+
+        private IssueDocument(Long employeeId, String title, String description) {
+            this.employeeId = employeeId;
+            this.title = title;
+            this.description = description;
+        }
+
+        private boolean matches(String query) {
+            return contains(title, query) || contains(description, query);
+        }
+    }
+
+    private static final class EmployeeDocument {
+        private final String name;
+        private final String lastName;
+
+        private EmployeeDocument(String name, String lastName) {
+            this.name = name;
+            this.lastName = lastName;
+        }
+
+        private boolean matches(String query) {
+            return contains(name, query) || contains(lastName, query);
+        }
+    }
+}
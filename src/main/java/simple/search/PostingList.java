@@ -0,0 +1,148 @@
+package simple.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of document ids stored as delta-encoded varints in a {@code byte[]}.
+ * Ids arriving in ascending order are appended in place; the rare out-of-order id
+ * goes to a small sorted side array that is merged back once it fills up.
+ * Not thread-safe, callers guard it with the owning index lock.
+ */
+final class PostingList {
+
+    private static final int MAX_UNORDERED = 64;
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int count;
+    private long last;
+
+    private long[] unordered = new long[0];
+    private int unorderedCount;
+
+    void add(long id) {
+        if (count == 0 || id > last) {
+            append(count == 0 ? id : id - last);
+            last = id;
+            count++;
+            return;
+        }
+        if (id == last) {
+            return;
+        }
+        int position = Arrays.binarySearch(unordered, 0, unorderedCount, id);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (unorderedCount == unordered.length) {
+            unordered = Arrays.copyOf(unordered, Math.max(4, unorderedCount * 2));
+        }
+        System.arraycopy(unordered, position, unordered, position + 1, unorderedCount - position);
+        unordered[position] = id;
+        unorderedCount++;
+
+        if (unorderedCount > MAX_UNORDERED) {
+            compact();
+        }
+    }
+
+    /**
+     * Upper bound of the number of ids, exact after {@link #compact()}.
+     */
+    int size() {
+        return count + unorderedCount;
+    }
+
+    long sizeInBytes() {
+        return data.length + (long) unordered.length * Long.BYTES;
+    }
+
+    long[] toArray() {
+        long[] ordered = decode();
+        if (unorderedCount == 0) {
+            return ordered;
+        }
+        long[] merged = new long[ordered.length + unorderedCount];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < ordered.length || j < unorderedCount) {
+            long next;
+            if (j == unorderedCount || (i < ordered.length && ordered[i] <= unordered[j])) {
+                next = ordered[i++];
+            } else {
+                next = unordered[j++];
+            }
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Keeps only the ids of {@code candidates} (sorted, first {@code size} used) present in this list.
+     * Returns the new candidate count.
+     */
+    int retainAll(long[] candidates, int size) {
+        long[] ids = toArray();
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            long candidate = candidates[i];
+            while (j < ids.length && ids[j] < candidate) {
+                j++;
+            }
+            if (j < ids.length && ids[j] == candidate) {
+                candidates[kept++] = candidate;
+            }
+        }
+        return kept;
+    }
+
+    private void compact() {
+        long[] ids = toArray();
+        data = new byte[Math.max(8, length + unorderedCount * 2)];
+        length = 0;
+        count = 0;
+        last = 0;
+        unordered = new long[0];
+        unorderedCount = 0;
+        for (long id : ids) {
+            append(count == 0 ? id : id - last);
+            last = id;
+            count++;
+        }
+    }
+
+    private long[] decode() {
+        long[] ids = new long[count];
+        long previous = 0;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous = i == 0 ? value : previous + value;
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    private void append(long value) {
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,160 @@
+package simple.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import simple.entity.Comment;
+import simple.repository.CommentRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory ranking of comments by likes, highest first and then by id, answering top-N queries
+ * globally and per issue without touching the database.
+ * <p>
+ * Every comment is one immutable entry in a global skip list and in the skip list of its issue.
+ * A change of likes replaces the entry in both lists in O(log n), and a top-N read walks the first
+ * N entries without locking. Likes are applied when {@code CommentLikeCounter} flushes them, so
+ * the ranking is as fresh as the stored counters.
+ */
+@Component
+public class TopCommentIndex {
+
+    private static final Comparator<Entry> BY_LIKES = Comparator.comparingLong((Entry entry) -> entry.likes)
+            .reversed()
+            .thenComparingLong(entry -> entry.id);
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Value("${app.comments.top-index.enabled:true}")
+    private boolean enabled = true;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Entry>> rankingsByIssue = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_LIKES);
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        ready = false;
+        entries.clear();
+        rankingsByIssue.clear();
+        ranking.clear();
+
+        commentRepository.findAll().forEach(this::indexComment);
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void indexComment(Comment comment) {
+        if (!enabled || comment.getId() == null || comment.getIssue() == null) {
+            return;
+        }
+        removeComment(comment.getId());
+        add(new Entry(comment.getId(), comment.getIssue().getId(), comment.getText(), comment.getLikes()));
+    }
+
+    /**
+     * Adds flushed likes to a comment. The result never drops below zero, like the stored counter.
+     */
+    public synchronized void addLikes(Long commentId, long delta) {
+        Entry entry = entries.get(commentId);
+        if (entry == null || delta == 0) {
+            return;
+        }
+        remove(entry);
+        add(new Entry(entry.id, entry.issueId, entry.text, Math.max(0, entry.likes + delta)));
+    }
+
+    public synchronized void removeComment(Long id) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public synchronized void removeIssue(Long issueId) {
+        NavigableSet<Entry> issueRanking = rankingsByIssue.remove(issueId);
+        if (issueRanking != null) {
+            issueRanking.forEach(entry -> {
+                entries.remove(entry.id);
+                ranking.remove(entry);
+            });
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} comments with the most likes, with their id, text and likes.
+     */
+    public List<Comment> top(int limit) {
+        return top(ranking, limit);
+    }
+
+    /**
+     * Returns up to {@code limit} comments of an issue with the most likes, or {@code null} if the
+     * issue has no indexed comments.
+     */
+    public List<Comment> top(Long issueId, int limit) {
+        NavigableSet<Entry> issueRanking = rankingsByIssue.get(issueId);
+        return issueRanking == null ? null : top(issueRanking, limit);
+    }
+
+    private static List<Comment> top(NavigableSet<Entry> ranking, int limit) {
+        List<Comment> comments = new ArrayList<>(Math.min(limit, 64));
+        for (Iterator<Entry> iterator = ranking.iterator(); iterator.hasNext() && comments.size() < limit; ) {
+            Entry entry = iterator.next();
+            comments.add(Comment.builder()
+                    .id(entry.id)
+                    .text(entry.text)
+                    .likes((int) Math.min(Integer.MAX_VALUE, entry.likes))
+                    .build());
+        }
+        return comments;
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.id, entry);
+        ranking.add(entry);
+        if (entry.issueId != null) {
+            rankingsByIssue.computeIfAbsent(entry.issueId, key -> new ConcurrentSkipListSet<>(BY_LIKES)).add(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.id);
+        ranking.remove(entry);
+        NavigableSet<Entry> issueRanking = entry.issueId == null ? null : rankingsByIssue.get(entry.issueId);
+        if (issueRanking != null) {
+            issueRanking.remove(entry);
+            if (issueRanking.isEmpty()) {
+                rankingsByIssue.remove(entry.issueId);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final Long issueId;
+        private final String text;
+        private final long likes;
+
+        private Entry(long id, Long issueId, String text, long likes) {
+            this.id = id;
+            this.issueId = issueId;
+            this.text = text;
+            this.likes = likes;
+        }
+    }
+}
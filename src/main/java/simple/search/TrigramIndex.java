@@ -0,0 +1,79 @@
+package simple.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps every three-character window of the indexed fields to the ids of the documents containing it.
+ * Trigrams never span two fields. Postings are only ever added: a document that lost a trigram
+ * simply becomes a false-positive candidate, which callers drop while verifying the text.
+ */
+final class TrigramIndex {
+
+    /**
+     * Below this many candidates verifying the text is cheaper than decoding more posting lists.
+     */
+    private static final int VERIFY_THRESHOLD = 32;
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void add(long id, String... fields) {
+        Set<Long> trigrams = new HashSet<>();
+        for (String field : fields) {
+            collectTrigrams(field, trigrams);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, key -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sorted ids of documents that may contain {@code query}, or {@code null}
+     * if the query is too short to be filtered by trigrams and every document is a candidate.
+     */
+    long[] candidates(String query) {
+        Set<Long> trigrams = new HashSet<>();
+        collectTrigrams(query, trigrams);
+        if (trigrams.isEmpty()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(trigrams.size());
+            for (Long trigram : trigrams) {
+                PostingList list = postings.get(trigram);
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            long[] candidates = lists.get(0).toArray();
+            int size = candidates.length;
+            for (int i = 1; i < lists.size() && size > VERIFY_THRESHOLD; i++) {
+                size = lists.get(i).retainAll(candidates, size);
+            }
+            return size == candidates.length ? candidates : Arrays.copyOf(candidates, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static void collectTrigrams(String text, Set<Long> trigrams) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package simple.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import simple.change.ChangeLog;
+import simple.dto.ChangeItem;
+import simple.dto.ChangePage;
+import simple.entity.Change;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.repository.ChangeRepository;
+import simple.repository.CommentRepository;
+import simple.repository.EmployeeRepository;
+import simple.repository.IssueRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static simple.service.ServiceUtils.*;
+
+@Service
+public class ChangeService {
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ChangeRepository changeRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    public ResponseEntity<Object> getChanges(Long since, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
+        }
+        long revision = since == null ? 0 : since;
+        if (revision > 0 && revision < changeLog.getPurgedRevision()) {
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(createErrorResponse("Deletes up to revision " + changeLog.getPurgedRevision() +
+                            " were compacted, sync again from revision 0"));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        // changes above the committed revision wait for the lower ones still in flight, so none is skipped
+        long committedRevision = changeLog.getCommittedRevision();
+        List<Change> changes = revision >= committedRevision ? List.of() : changeRepository
+                .findByRevisionBetweenOrderByRevisionAsc(revision + 1, committedRevision, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+        if (!changes.isEmpty()) {
+            revision = changes.get(changes.size() - 1).getRevision();
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(new ChangePage(toItems(changes), revision, hasMore));
+    }
+
+    /**
+     * Keeps the latest change of every entity and attaches the current state to the upserts.
+     * An upsert of an entity deleted meanwhile is skipped, its tombstone has a higher revision.
+     */
+    private List<ChangeItem> toItems(List<Change> changes) {
+        Map<Change.Type, Map<Long, Change>> latest = new EnumMap<>(Change.Type.class);
+        for (Change change : changes) {
+            latest.computeIfAbsent(change.getType(), type -> new HashMap<>()).put(change.getEntityId(), change);
+        }
+        Map<Change.Type, Map<Long, ?>> entities = new EnumMap<>(Change.Type.class);
+        entities.put(Change.Type.EMPLOYEE, load(latest, Change.Type.EMPLOYEE, employeeRepository::findAllById, Employee::getId));
+        entities.put(Change.Type.ISSUE, load(latest, Change.Type.ISSUE, issueRepository::findAllById, Issue::getId));
+        entities.put(Change.Type.COMMENT, load(latest, Change.Type.COMMENT, commentRepository::findAllById, Comment::getId));
+
+        List<ChangeItem> items = new ArrayList<>();
+        for (Change change : changes) {
+            if (latest.get(change.getType()).get(change.getEntityId()) != change) {
+                continue;
+            }
+            if (change.isDeleted()) {
+                items.add(new ChangeItem(change.getRevision(), change.getType(), change.getEntityId(), true, null));
+                continue;
+            }
+            Object entity = entities.get(change.getType()).get(change.getEntityId());
+            if (entity != null) {
+                items.add(new ChangeItem(change.getRevision(), change.getType(), change.getEntityId(), false, entity));
+            }
+        }
+        return items;
+    }
+
+    private <T> Map<Long, T> load(Map<Change.Type, Map<Long, Change>> latest, Change.Type type,
+                                  Function<List<Long>, List<T>> loader, Function<T, Long> idGetter) {
+        List<Long> ids = latest.getOrDefault(type, Map.of()).values().stream()
+                .filter(change -> !change.isDeleted())
+                .map(Change::getEntityId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return loader.apply(ids).stream().collect(Collectors.toMap(idGetter, Function.identity()));
+    }
+}
@@ -1,18 +1,56 @@
 package simple.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.counter.AggregateCounters;
+import simple.counter.CommentLikeCounter;
+import simple.counter.UniqueLikerCounter;
+import simple.dto.BulkItemResult;
+import simple.dto.CommentBulkItem;
+import simple.dto.UniqueLikers;
+import simple.dto.VersionStamp;
+import simple.entity.Change;
 import simple.entity.Comment;
 import simple.entity.Issue;
+import simple.event.IssueEvent;
+import simple.event.IssueEventHub;
+import simple.graph.FieldSelection;
+import simple.graph.GraphFetcher;
+import simple.graph.GraphType;
 import simple.repository.CommentRepository;
 import simple.repository.IssueRepository;
+import simple.search.TopCommentIndex;
+import simple.stream.EntityPublisher;
+import simple.stream.EntityStreamer;
+import simple.write.CommentWriteQueue;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static simple.service.ServiceUtils.DEFAULT_TOP_SIZE;
+import static simple.service.ServiceUtils.MAX_BULK_SIZE;
+import static simple.service.ServiceUtils.MAX_PAGE_SIZE;
+import static simple.service.ServiceUtils.appendPendingLikes;
+import static simple.service.ServiceUtils.afterCommit;
 import static simple.service.ServiceUtils.createErrorResponse;
+import static simple.service.ServiceUtils.createMultiGetResult;
+import static simple.service.ServiceUtils.createTag;
+import static simple.service.ServiceUtils.findAllInChunks;
+import static simple.service.ServiceUtils.validateIds;
 
 @Service
 public class CommentService {
@@ -26,6 +64,45 @@ public class CommentService {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private EntityStreamer entityStreamer;
+
+    @Autowired
+    private EntityPublisher entityPublisher;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private CommentLikeCounter commentLikeCounter;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private IssueEventHub issueEventHub;
+
+    @Autowired
+    private AggregateCounters aggregateCounters;
+
+    @Autowired
+    private TopCommentIndex topCommentIndex;
+
+    @Autowired
+    private UniqueLikerCounter uniqueLikerCounter;
+
+    @Autowired
+    private GraphFetcher graphFetcher;
+
+    @Autowired
+    private CommentWriteQueue commentWriteQueue;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriteQueue() {
+        commentWriteQueue.start(this::saveComments);
+    }
+
+    @Transactional
     public ResponseEntity<Object> createComment(Long issueId, Comment comment) {
         if (issueId == null) {
             return ResponseEntity.badRequest()
@@ -33,36 +110,337 @@ public class CommentService {
         }
         Issue issue = issueService.getIssueById(issueId);
 
-        if (comment.getText() == null) {
+        String error = validateNewComment(comment);
+        if (error != null) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'text' field is required"));
+                    .body(createErrorResponse(error));
         }
-        if (comment.getText().length() < 1) {
+
+        // the comment owns the relation, merging the cached issue would fail on stale comment versions
+        comment.setIssue(issue);
+        Comment savedComment = commentRepository.save(comment);
+        aggregateCounters.addComment(savedComment);
+        afterCommit(() -> {
+            topCommentIndex.indexComment(savedComment);
+            entityCache.evictIssue(issue);
+        });
+        changeLog.record(Change.upsert(Change.Type.COMMENT, savedComment.getId()),
+                Change.upsert(Change.Type.ISSUE, issue.getId()),
+                Change.upsert(Change.Type.EMPLOYEE, IssueService.employeeId(issue)));
+        issueEventHub.publish(IssueEvent.commentCreated(issue.getId(), savedComment));
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedComment);
+    }
+
+    public boolean isGroupCommitEnabled() {
+        return commentWriteQueue.isEnabled();
+    }
+
+    /**
+     * Validates the comment like {@link #createComment} and queues it for the next group commit. The
+     * response is completed once the comment is committed, or with 503 if the queue is full.
+     */
+    public CompletableFuture<ResponseEntity<Object>> submitComment(Long issueId, Comment comment) {
+        if (issueId == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'issueId' param is required")));
+        }
+        Issue issue = issueService.getIssueById(issueId);
+
+        String error = validateNewComment(comment);
+        if (error != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse(error)));
+        }
+
+        comment.setIssue(issue);
+        CompletableFuture<Comment> savedComment = commentWriteQueue.submit(comment);
+        if (savedComment == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse("The comment queue is full, retry later")));
+        }
+        return savedComment.thenApply(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved));
+    }
+
+    @Transactional
+    public ResponseEntity<Object> createComments(List<CommentBulkItem> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BULK_SIZE) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'text' field must have at least then 1 character"));
+                    .body(createErrorResponse("The request body should contain from 1 to " + MAX_BULK_SIZE + " comments"));
+        }
+
+        Set<Long> issueIds = items.stream()
+                .filter(Objects::nonNull)
+                .map(CommentBulkItem::getIssueId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Issue> issues = issueRepository.findAllById(issueIds).stream()
+                .collect(Collectors.toMap(Issue::getId, Function.identity()));
+
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            CommentBulkItem item = items.get(i);
+            if (item == null || item.getIssueId() == null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.BAD_REQUEST, "The 'issueId' param is required"));
+                continue;
+            }
+            Issue issue = issues.get(item.getIssueId());
+            if (issue == null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.NOT_FOUND, "The issue was not found"));
+                continue;
+            }
+            Comment comment = Comment.builder()
+                    .text(item.getText())
+                    .likes(item.getLikes())
+                    .build();
+            String error = validateNewComment(comment);
+            if (error != null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.BAD_REQUEST, error));
+                continue;
+            }
+
+            comment.setIssue(issue);
+            comments.add(comment);
+            results.add(null);
+        }
+
+        Iterator<Comment> saved = saveComments(comments).iterator();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, BulkItemResult.created(i, saved.next().getId()));
+            }
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(results);
+    }
+
+    /**
+     * Saves validated comments that already reference their issues, must be called in a transaction.
+     */
+    private List<Comment> saveComments(List<Comment> comments) {
+        List<Comment> saved = commentRepository.saveAll(comments);
+        aggregateCounters.addComments(saved);
+        afterCommit(() -> saved.forEach(comment -> {
+            entityCache.evictIssue(comment.getIssue());
+            topCommentIndex.indexComment(comment);
+        }));
+        List<Change> changes = new ArrayList<>();
+        Map<Long, Issue> changedIssues = new LinkedHashMap<>();
+        for (Comment comment : saved) {
+            changes.add(Change.upsert(Change.Type.COMMENT, comment.getId()));
+            changedIssues.putIfAbsent(comment.getIssue().getId(), comment.getIssue());
+            issueEventHub.publish(IssueEvent.commentCreated(comment.getIssue().getId(), comment));
+        }
+        changedIssues.values().forEach(issue -> {
+            changes.add(Change.upsert(Change.Type.ISSUE, issue.getId()));
+            changes.add(Change.upsert(Change.Type.EMPLOYEE, IssueService.employeeId(issue)));
+        });
+        changeLog.record(changes);
+        return saved;
+    }
+
+    private String validateNewComment(Comment comment) {
+        if (comment.getText() == null) {
+            return "The 'text' field is required";
+        }
+        if (comment.getText().length() < 1) {
+            return "The 'text' field must have at least then 1 character";
         }
         if (comment.getText().length() > 400) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'text' field length should be less than 400 characters"));
+            return "The 'text' field length should be less than 400 characters";
         }
+        return null;
+    }
 
-        comment.setIssue(issue);
-        Comment savedComment = commentRepository.save(comment);
-        issue.addComment(savedComment);
-        issueRepository.save(issue);
+    /**
+     * Returns the entity tag of the comments of an issue, including likes not flushed yet.
+     */
+    public String getIssueCommentsTag(Long id) {
+        if (issueRepository.findVersionStampById(id).getCount() == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return appendPendingLikes(createTag(commentRepository.findVersionStampByIssueId(id)),
+                commentLikeCounter.getPendingLikesHash(id));
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedComment);
+    /**
+     * Returns the entity tag of a comment list as served, pending likes included. The cached list may
+     * lag behind the database until it is evicted, the tag of the body served always matches the body.
+     */
+    public String getIssueCommentsTag(List<Comment> comments) {
+        long likesHash = 0;
+        for (Comment comment : comments) {
+            likesHash = 31 * likesHash + comment.getLikes();
+        }
+        return createTag(VersionStamp.of(comments, Comment::getId, Comment::getVersion)) + "-" + Long.toHexString(likesHash);
     }
 
     public ResponseEntity<List<Comment>> getIssueComments(Long id) {
         Issue issue = issueService.getIssueById(id);
-        return ResponseEntity.status(HttpStatus.OK).body(commentRepository.findByIssue(issue));
+        List<Comment> comments = entityCache.getIssueComments(id, key -> commentRepository.findByIssue(issue));
+        return ResponseEntity.status(HttpStatus.OK).body(withPendingLikes(comments));
+    }
+
+    public ResponseEntity<Object> getIssueComments(Long id, String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.COMMENT.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+        if (!issueRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(graphFetcher.findByParentId(GraphType.COMMENT, id, selection));
+    }
+
+    public ResponseEntity<Object> getCommentsByIssueIds(List<Long> ids) {
+        String error = validateIds(ids);
+        if (error != null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(error));
+        }
+
+        Map<Long, Issue> issues = issueService.getIssuesById(ids);
+        Map<Long, List<Comment>> comments = new HashMap<>();
+        if (!issues.isEmpty()) {
+            entityCache.getIssueComments(issues.keySet(), this::findCommentsByIssueIds)
+                    .forEach((id, issueComments) -> comments.put(id, withPendingLikes(issueComments)));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(createMultiGetResult(ids, comments));
+    }
+
+    private Map<Long, List<Comment>> findCommentsByIssueIds(List<Long> issueIds) {
+        Map<Long, List<Comment>> comments = new HashMap<>();
+        issueIds.forEach(id -> comments.put(id, new ArrayList<>()));
+        findAllInChunks(issueIds, commentRepository::findByIssueIdInOrderByIdAsc)
+                .forEach(comment -> comments.get(comment.getIssue().getId()).add(comment));
+        return comments;
+    }
+
+    public Flux<Comment> publishIssueComments(Long id) {
+        Issue issue = issueService.getIssueById(id);
+        return entityPublisher.keysetPages(
+                (after, pageable) -> withPendingLikes(commentRepository.findByIssueAndIdGreaterThanOrderByIdAsc(issue, after, pageable)),
+                Comment::getId);
+    }
+
+    public ResponseEntity<Object> getTopComments(Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
+        }
+        int size = limit == null ? DEFAULT_TOP_SIZE : limit;
+        if (topCommentIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.OK).body(topCommentIndex.top(size));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(commentRepository.findByOrderByLikesDescIdAsc(PageRequest.of(0, size)));
+    }
+
+    public ResponseEntity<Object> getIssueTopComments(Long id, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
+        }
+        int size = limit == null ? DEFAULT_TOP_SIZE : limit;
+        if (topCommentIndex.isReady()) {
+            List<Comment> comments = topCommentIndex.top(id, size);
+            if (comments == null) {
+                // an issue without comments, or no issue at all
+                issueService.getIssueById(id);
+                comments = List.of();
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(comments);
+        }
+        Issue issue = issueService.getIssueById(id);
+        return ResponseEntity.status(HttpStatus.OK).body(commentRepository.findByIssueOrderByLikesDescIdAsc(issue, PageRequest.of(0, size)));
+    }
+
+    public ResponseEntity<Void> likeComment(Long id) {
+        return likeComment(id, null);
+    }
+
+    public ResponseEntity<Void> likeComment(Long id, String liker) {
+        return changeLikes(id, 1, liker);
+    }
+
+    public ResponseEntity<Void> unlikeComment(Long id) {
+        return changeLikes(id, -1, null);
+    }
+
+    public ResponseEntity<UniqueLikers> getCommentLikers(Long id) {
+        UniqueLikers likers = uniqueLikerCounter.getCommentLikers(id);
+        if (likers == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(likers);
+    }
+
+    /**
+     * Adds likes and the liker, if any, with the issue of the comment taken before the add: a flush may
+     * drop the counter of the comment right after it.
+     */
+    private ResponseEntity<Void> changeLikes(Long id, int delta, String liker) {
+        Long issueId = commentLikeCounter.getIssueId(id);
+        if (issueId == null || !commentLikeCounter.add(id, delta)) {
+            Optional<Comment> optionalComment = commentRepository.findById(id);
+            if (optionalComment.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            Comment comment = optionalComment.get();
+            commentLikeCounter.add(comment, delta);
+            issueId = comment.getIssue() == null ? null : comment.getIssue().getId();
+        }
+        if (liker != null) {
+            uniqueLikerCounter.add(id, issueId, liker);
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private List<Comment> withPendingLikes(List<Comment> comments) {
+        List<Comment> result = null;
+        for (int i = 0; i < comments.size(); i++) {
+            Comment comment = comments.get(i);
+            long delta = commentLikeCounter.getPendingDelta(comment.getId());
+            if (delta == 0) {
+                continue;
+            }
+            if (result == null) {
+                result = new ArrayList<>(comments);
+            }
+            result.set(i, comment.toBuilder()
+                    .likes((int) Math.max(0, comment.getLikes() + delta))
+                    .build());
+        }
+        return result == null ? comments : result;
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportComments() {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(entityStreamer.ndjson(commentRepository::streamAllByOrderByIdAsc));
     }
 
+    @Transactional
     public ResponseEntity<Void> deleteComment(Long id) {
         Optional<Comment> optionalComment = commentRepository.findById(id);
         if (optionalComment.isPresent()) {
             commentRepository.deleteById(id);
+            commentLikeCounter.remove(id);
+            uniqueLikerCounter.removeComment(id);
+            aggregateCounters.removeComment(optionalComment.get());
+            Issue issue = optionalComment.get().getIssue();
+            afterCommit(() -> {
+                topCommentIndex.removeComment(id);
+                entityCache.evictIssue(issue);
+            });
+            changeLog.record(Change.delete(Change.Type.COMMENT, id),
+                    Change.upsert(Change.Type.ISSUE, issue == null ? null : issue.getId()),
+                    Change.upsert(Change.Type.EMPLOYEE, issue == null ? null : IssueService.employeeId(issue)));
+            issueEventHub.publish(IssueEvent.commentDeleted(issue == null ? null : issue.getId(), id));
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -1,15 +1,41 @@
 package simple.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.counter.AggregateCounters;
+import simple.counter.CommentLikeCounter;
+import simple.dto.BulkItemResult;
+import simple.dto.EmployeeStats;
+import simple.dto.VersionStamp;
+import simple.entity.Change;
+import simple.entity.Comment;
 import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.graph.FieldSelection;
+import simple.graph.GraphFetcher;
+import simple.graph.GraphType;
+import simple.id.IdFilter;
+import simple.repository.CommentRepository;
 import simple.repository.EmployeeRepository;
+import simple.repository.IssueRepository;
+import simple.search.IssueSearchIndex;
+import simple.stream.EntityStreamer;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static simple.service.ServiceUtils.*;
 
@@ -19,45 +45,311 @@ public class EmployeeService {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private IssueSearchIndex issueSearchIndex;
+
+    @Autowired
+    private EntityStreamer entityStreamer;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private AggregateCounters aggregateCounters;
+
+    @Autowired
+    private IdFilter idFilter;
+
+    @Autowired
+    private GraphFetcher graphFetcher;
+
+    @Autowired
+    private CommentLikeCounter commentLikeCounter;
+
+    @Transactional
     public ResponseEntity<Object> createEmployee(Employee employee) {
-        if (employee.getName() == null || employee.getLastName() == null) {
+        String error = validateNewEmployee(employee);
+        if (error != null) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'name' and 'lastName' fields is required"));
+                    .body(createErrorResponse(error));
         }
-        if (employee.getName().length() < 1) {
+
+        employee.setId(null);
+        Employee savedEmployee = employeeRepository.save(employee);
+        idFilter.addEmployee(savedEmployee.getId());
+        afterCommit(() -> issueSearchIndex.indexEmployee(savedEmployee));
+        changeLog.record(Change.upsert(Change.Type.EMPLOYEE, savedEmployee.getId()));
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedEmployee);
+    }
+
+    @Transactional
+    public ResponseEntity<Object> createEmployees(List<Employee> employees) {
+        if (employees == null || employees.isEmpty() || employees.size() > MAX_BULK_SIZE) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'name' field must have at least then 1 character"));
+                    .body(createErrorResponse("The request body should contain from 1 to " + MAX_BULK_SIZE + " employees"));
+        }
+
+        List<BulkItemResult> results = new ArrayList<>(employees.size());
+        List<Employee> validEmployees = new ArrayList<>();
+        for (int i = 0; i < employees.size(); i++) {
+            Employee employee = employees.get(i);
+            String error = employee == null ? "The employee is required" : validateNewEmployee(employee);
+            if (error != null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.BAD_REQUEST, error));
+                continue;
+            }
+            employee.setId(null);
+            validEmployees.add(employee);
+            results.add(null);
+        }
+
+        List<Employee> savedEmployees = employeeRepository.saveAll(validEmployees);
+        savedEmployees.forEach(savedEmployee -> idFilter.addEmployee(savedEmployee.getId()));
+        Iterator<Employee> saved = savedEmployees.iterator();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, BulkItemResult.created(i, saved.next().getId()));
+            }
+        }
+        afterCommit(() -> savedEmployees.forEach(savedEmployee -> {
+            idFilter.addEmployee(savedEmployee.getId());
+            issueSearchIndex.indexEmployee(savedEmployee);
+        }));
+        changeLog.record(savedEmployees.stream()
+                .map(savedEmployee -> Change.upsert(Change.Type.EMPLOYEE, savedEmployee.getId()))
+                .collect(Collectors.toList()));
+
+        return ResponseEntity.status(HttpStatus.OK).body(results);
+    }
+
+    private String validateNewEmployee(Employee employee) {
+        if (employee.getName() == null || employee.getLastName() == null) {
+            return "The 'name' and 'lastName' fields is required";
+        }
+        if (employee.getName().length() < 1) {
+            return "The 'name' field must have at least then 1 character";
         }
         if (employee.getLastName().length() < 1) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'lastName' field must have at least then 1 character"));
+            return "The 'lastName' field must have at least then 1 character";
         }
         if (employee.getName().length() > 20) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'name' field length should be less then 20 characters"));
+            return "The 'name' field length should be less then 20 characters";
         }
         if (employee.getLastName().length() > 100) {
+            return "The 'lastName' field length should be less then 100 characters";
+        }
+        return null;
+    }
+
+    public ResponseEntity<List<Employee>> getEmployeeList() {
+        return ResponseEntity.ok().body(employeeRepository.findAll());
+    }
+
+    public ResponseEntity<Object> getEmployeePage(Long after, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'lastName' field length should be less then 100 characters"));
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
         }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Employee> employees = employeeRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after,
+                PageRequest.of(0, pageSize + 1));
 
-        employee.setId(null);
-        Employee savedEmployee = employeeRepository.save(employee);
+        return ResponseEntity.ok().body(createKeysetPage(employees, pageSize, Employee::getId));
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedEmployee);
+    /**
+     * Returns only the selected fields of every employee, loaded as projections.
+     */
+    public ResponseEntity<Object> getEmployeeList(String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.EMPLOYEE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+
+        return ResponseEntity.ok().body(graphFetcher.findAll(GraphType.EMPLOYEE, selection));
     }
 
-    public ResponseEntity<List<Employee>> getEmployeeList() {
-        return ResponseEntity.ok().body(employeeRepository.findAll());
+    public ResponseEntity<Object> getEmployeePage(Long after, Integer limit, String fields) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
+        }
+        FieldSelection selection;
+        try {
+            selection = GraphType.EMPLOYEE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Map<String, Object>> employees = graphFetcher.findPage(GraphType.EMPLOYEE, after == null ? 0L : after,
+                pageSize + 1, selection);
+
+        return ResponseEntity.ok().body(createKeysetPage(employees, pageSize, employee -> (Long) employee.get(Employee.ID_FIELD)));
+    }
+
+    public ResponseEntity<StreamingResponseBody> streamEmployeeList() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entityStreamer.jsonArray(employeeRepository::streamAllByOrderByIdAsc));
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportEmployees() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(entityStreamer.ndjson(employeeRepository::streamAllByOrderByIdAsc));
+    }
+
+    /**
+     * Returns the entity tag of an employee with its issues and their comments, without loading them.
+     */
+    public String getEmployeeTag(Long id) {
+        if (idFilter.isMissingEmployee(id)) {
+            throw notFound();
+        }
+        VersionStamp employee = employeeRepository.findVersionStampById(id);
+        if (employee.getCount() == 0) {
+            throw notFound();
+        }
+        return createTag(employee, issueRepository.findVersionStampByEmployeeId(id),
+                commentRepository.findVersionStampByEmployeeId(id));
+    }
+
+    /**
+     * Returns the entity tag of an employee as served, from the versions of the employee, its issues and their
+     * comments. The cached employee may lag behind the database until it is evicted, the tag always matches it.
+     */
+    public String getEmployeeTag(Employee employee) {
+        List<Issue> issues = employee.getIssues() == null ? List.of() : employee.getIssues();
+        List<Comment> comments = new ArrayList<>();
+        for (Issue issue : issues) {
+            if (issue.getComments() != null) {
+                comments.addAll(issue.getComments());
+            }
+        }
+        return createTag(VersionStamp.of(List.of(employee), Employee::getId, Employee::getVersion),
+                VersionStamp.of(issues, Issue::getId, Issue::getVersion),
+                VersionStamp.of(comments, Comment::getId, Comment::getVersion));
+    }
+
+    /**
+     * Returns the tag of the employee with selected fields, which include likes not flushed yet.
+     */
+    public String getEmployeeProjectionTag(Long id) {
+        return appendPendingLikes(getEmployeeTag(id), commentLikeCounter.getEmployeePendingLikesHash(id));
+    }
+
+    public String getEmployeeListProjectionTag() {
+        return appendPendingLikes(getEmployeeListTag(), commentLikeCounter.getPendingLikesHash());
+    }
+
+    public String getEmployeeListTag() {
+        return createTag(employeeRepository.findVersionStamp(), issueRepository.findVersionStamp(),
+                commentRepository.findVersionStamp());
+    }
+
+    /**
+     * Returns {@code true} if the id filter rules the employee out, without touching the cache or the database.
+     */
+    public boolean isMissingEmployee(Long id) {
+        return idFilter.isMissingEmployee(id);
     }
 
     public Employee getEmployeeById(Long id) {
-        return employeeRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (idFilter.isMissingEmployee(id)) {
+            throw notFound();
+        }
+        Employee employee = entityCache.getEmployee(id, key -> employeeRepository.findById(key).orElse(null));
+        if (employee == null) {
+            throw notFound();
+        }
+        return employee;
     }
 
+    public ResponseEntity<Object> getEmployeeById(Long id, String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.EMPLOYEE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+        if (idFilter.isMissingEmployee(id)) {
+            throw notFound();
+        }
+        Map<String, Object> employee = graphFetcher.findById(GraphType.EMPLOYEE, id, selection);
+        if (employee == null) {
+            throw notFound();
+        }
+        return ResponseEntity.ok().body(employee);
+    }
+
+    public ResponseEntity<Object> getEmployeesByIds(List<Long> ids) {
+        String error = validateIds(ids);
+        if (error != null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(error));
+        }
+
+        List<Long> candidates = ids.stream()
+                .filter(id -> !idFilter.isMissingEmployee(id))
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Employee> employees = candidates.isEmpty() ? Map.of() : entityCache.getEmployees(candidates,
+                keys -> findAllInChunks(keys, employeeRepository::findAllById).stream()
+                        .collect(Collectors.toMap(Employee::getId, Function.identity())));
+        return ResponseEntity.status(HttpStatus.OK).body(createMultiGetResult(ids, employees));
+    }
+
+    public ResponseEntity<Object> getEmployeeGraph(List<Long> ids, String fields) {
+        String error = validateIds(ids);
+        if (error != null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(error));
+        }
+
+        FieldSelection selection;
+        try {
+            selection = GraphType.EMPLOYEE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+
+        List<Long> candidates = ids.stream()
+                .filter(id -> !idFilter.isMissingEmployee(id))
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Map<String, Object>> employees = candidates.isEmpty() ? Map.of()
+                : graphFetcher.findByIds(GraphType.EMPLOYEE, candidates, selection);
+        return ResponseEntity.status(HttpStatus.OK).body(createMultiGetResult(ids, employees));
+    }
+
+    public ResponseEntity<EmployeeStats> getEmployeeStats(Long id) {
+        EmployeeStats stats = aggregateCounters.getEmployeeStats(id);
+        if (stats == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(stats);
+    }
+
+    @Transactional
     public ResponseEntity<Object> editEmployee(Map<String, Object> employeeMap, Long id) {
-        Employee employee = getEmployeeById(id);
+        Employee employee = employeeRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
         String name = (String) employeeMap.get(Employee.NAME_FIELD);
         if (name != null && name.length() < 1) {
@@ -92,15 +384,28 @@ public class EmployeeService {
         }
 
         Employee savedEmployee = employeeRepository.save(employee);
+        afterCommit(() -> {
+            entityCache.evictEmployee(id);
+            issueSearchIndex.indexEmployee(savedEmployee);
+        });
+        changeLog.record(Change.upsert(Change.Type.EMPLOYEE, id));
 
         return ResponseEntity.status(HttpStatus.OK).body(savedEmployee);
     }
 
+    @Transactional
     public ResponseEntity<Object> remove(Long id) {
-        Employee employee = getEmployeeById(id);
+        Employee employee = employeeRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
         if (employee.getIssues() == null || employee.getIssues().isEmpty()) {
             employeeRepository.deleteById(id);
+            afterCommit(() -> {
+                entityCache.evictEmployee(id);
+                issueSearchIndex.removeEmployee(id);
+                idFilter.removeEmployee(id);
+            });
+            changeLog.record(Change.delete(Change.Type.EMPLOYEE, id));
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.badRequest()
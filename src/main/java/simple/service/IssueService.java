@@ -1,18 +1,47 @@
 package simple.service;
 
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.counter.AggregateCounters;
+import simple.counter.CommentLikeCounter;
+import simple.counter.UniqueLikerCounter;
+import simple.dto.BulkItemResult;
+import simple.dto.IssueBulkItem;
+import simple.dto.IssueStats;
+import simple.dto.UniqueLikers;
+import simple.dto.VersionStamp;
+import simple.entity.Change;
+import simple.entity.Comment;
 import simple.entity.Employee;
 import simple.entity.Issue;
+import simple.id.IdFilter;
+import simple.event.IssueEvent;
+import simple.event.IssueEventHub;
+import simple.graph.FieldSelection;
+import simple.graph.GraphFetcher;
+import simple.graph.GraphType;
+import simple.repository.CommentRepository;
 import simple.repository.EmployeeRepository;
 import simple.repository.IssueRepository;
+import simple.search.IssueSearchIndex;
+import simple.search.TopCommentIndex;
+import simple.stream.EntityPublisher;
+import simple.stream.EntityStreamer;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static simple.service.ServiceUtils.*;
@@ -26,9 +55,49 @@ public class IssueService {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private CommentRepository commentRepository;
+
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private IssueSearchIndex issueSearchIndex;
+
+    @Autowired
+    private EntityStreamer entityStreamer;
+
+    @Autowired
+    private EntityPublisher entityPublisher;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private IssueEventHub issueEventHub;
+
+    @Autowired
+    private AggregateCounters aggregateCounters;
+
+    @Autowired
+    private TopCommentIndex topCommentIndex;
+
+    @Autowired
+    private IdFilter idFilter;
+
+    @Autowired
+    private UniqueLikerCounter uniqueLikerCounter;
+
+    @Autowired
+    private GraphFetcher graphFetcher;
+
+    @Autowired
+    private CommentLikeCounter commentLikeCounter;
+
+    @Transactional
     public ResponseEntity<Object> createIssue(Long employeeId, Issue issue) {
         if (employeeId == null) {
             return ResponseEntity.badRequest()
@@ -36,39 +105,217 @@ public class IssueService {
         }
         Employee employee = employeeService.getEmployeeById(employeeId);
 
-        if (issue.getTitle() == null) {
+        String error = validateNewIssue(issue);
+        if (error != null) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'title' field is required"));
+                    .body(createErrorResponse(error));
         }
-        if (issue.getTitle().length() < 1) {
+
+        // the issue owns the relation, so saving it is the only write and the employee's issues stay unloaded
+        issue.setEmployee(employee);
+        Issue savedIssue = issueRepository.save(issue);
+        idFilter.addIssue(savedIssue.getId());
+        aggregateCounters.addIssue(savedIssue);
+        afterCommit(() -> {
+            entityCache.evictEmployee(employeeId);
+            issueSearchIndex.indexIssue(savedIssue);
+        });
+        changeLog.record(Change.upsert(Change.Type.ISSUE, savedIssue.getId()),
+                Change.upsert(Change.Type.EMPLOYEE, employeeId));
+        issueEventHub.publish(IssueEvent.issueCreated(savedIssue));
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedIssue);
+    }
+
+    @Transactional
+    public ResponseEntity<Object> createIssues(List<IssueBulkItem> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BULK_SIZE) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'title' field must have at least then 1 character"));
+                    .body(createErrorResponse("The request body should contain from 1 to " + MAX_BULK_SIZE + " issues"));
+        }
+
+        Set<Long> employeeIds = items.stream()
+                .filter(Objects::nonNull)
+                .map(IssueBulkItem::getEmployeeId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Employee> employees = employeeRepository.findAllById(employeeIds).stream()
+                .collect(Collectors.toMap(Employee::getId, Function.identity()));
+
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            IssueBulkItem item = items.get(i);
+            if (item == null || item.getEmployeeId() == null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.BAD_REQUEST, "The 'employeeId' param is required"));
+                continue;
+            }
+            Employee employee = employees.get(item.getEmployeeId());
+            if (employee == null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.NOT_FOUND, "The employee was not found"));
+                continue;
+            }
+            Issue issue = Issue.builder()
+                    .title(item.getTitle())
+                    .description(item.getDescription())
+                    .build();
+            String error = validateNewIssue(issue);
+            if (error != null) {
+                results.add(BulkItemResult.failed(i, HttpStatus.BAD_REQUEST, error));
+                continue;
+            }
+
+            issue.setEmployee(employee);
+            issues.add(issue);
+            results.add(null);
+        }
+
+        List<Issue> savedIssues = issueRepository.saveAll(issues);
+        savedIssues.forEach(savedIssue -> idFilter.addIssue(savedIssue.getId()));
+        aggregateCounters.addIssues(savedIssues);
+        Iterator<Issue> saved = savedIssues.iterator();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, BulkItemResult.created(i, saved.next().getId()));
+            }
+        }
+        afterCommit(() -> savedIssues.forEach(savedIssue -> {
+            idFilter.addIssue(savedIssue.getId());
+            entityCache.evictIssue(savedIssue);
+            issueSearchIndex.indexIssue(savedIssue);
+        }));
+        List<Change> changes = new ArrayList<>();
+        Set<Long> changedEmployeeIds = new LinkedHashSet<>();
+        for (Issue savedIssue : savedIssues) {
+            changes.add(Change.upsert(Change.Type.ISSUE, savedIssue.getId()));
+            changedEmployeeIds.add(employeeId(savedIssue));
+            issueEventHub.publish(IssueEvent.issueCreated(savedIssue));
+        }
+        changedEmployeeIds.forEach(employeeId -> changes.add(Change.upsert(Change.Type.EMPLOYEE, employeeId)));
+        changeLog.record(changes);
+
+        return ResponseEntity.status(HttpStatus.OK).body(results);
+    }
+
+    private String validateNewIssue(Issue issue) {
+        if (issue.getTitle() == null) {
+            return "The 'title' field is required";
+        }
+        if (issue.getTitle().length() < 1) {
+            return "The 'title' field must have at least then 1 character";
         }
         if (issue.getTitle().length() > 100) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'title' field length should be less then 100 characters"));
+            return "The 'title' field length should be less then 100 characters";
         }
         if (issue.getDescription() != null && issue.getDescription().length() > 1000) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("The 'description' field length should be less then 1000 characters"));
+            return "The 'description' field length should be less then 1000 characters";
         }
+        return null;
+    }
 
+    /**
+     * Returns the entity tag of an issue with its comments, without loading them.
+     */
+    public String getIssueTag(Long id) {
+        if (idFilter.isMissingIssue(id)) {
+            throw notFound();
+        }
+        VersionStamp issue = issueRepository.findVersionStampById(id);
+        if (issue.getCount() == 0) {
+            throw notFound();
+        }
+        return createTag(issue, commentRepository.findVersionStampByIssueId(id));
+    }
 
-        issue.setEmployee(employee);
-        Issue savedIssue = issueRepository.save(issue);
-        employee.addIssue(savedIssue);
-        employeeRepository.save(employee);
+    /**
+     * Returns the entity tag of an issue as served, from the versions of the issue and its comments. The
+     * cached issue may lag behind the database until it is evicted, the tag of the body served always matches it.
+     */
+    public String getIssueTag(Issue issue) {
+        List<Comment> comments = issue.getComments() == null ? List.of() : issue.getComments();
+        return createTag(VersionStamp.of(List.of(issue), Issue::getId, Issue::getVersion),
+                VersionStamp.of(comments, Comment::getId, Comment::getVersion));
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedIssue);
+    public String getIssueListTag() {
+        return createTag(issueRepository.findVersionStamp(), commentRepository.findVersionStamp());
+    }
+
+    /**
+     * Returns the tag of the issue with selected fields, which include likes not flushed yet.
+     */
+    public String getIssueProjectionTag(Long id) {
+        return appendPendingLikes(getIssueTag(id), commentLikeCounter.getPendingLikesHash(id));
+    }
+
+    public String getIssueListProjectionTag() {
+        return appendPendingLikes(getIssueListTag(), commentLikeCounter.getPendingLikesHash());
+    }
+
+    /**
+     * Returns {@code true} if the id filter rules the issue out, without touching the cache or the database.
+     */
+    public boolean isMissingIssue(Long id) {
+        return idFilter.isMissingIssue(id);
     }
 
     public Issue getIssueById(Long id) {
-        return issueRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (idFilter.isMissingIssue(id)) {
+            throw notFound();
+        }
+        Issue issue = entityCache.getIssue(id, key -> issueRepository.findById(key).orElse(null));
+        if (issue == null) {
+            throw notFound();
+        }
+        return issue;
+    }
+
+    public ResponseEntity<Object> getIssueById(Long id, String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.ISSUE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+        if (idFilter.isMissingIssue(id)) {
+            throw notFound();
+        }
+        Map<String, Object> issue = graphFetcher.findById(GraphType.ISSUE, id, selection);
+        if (issue == null) {
+            throw notFound();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(issue);
+    }
+
+    public ResponseEntity<Object> getIssuesByIds(List<Long> ids) {
+        String error = validateIds(ids);
+        if (error != null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(error));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(createMultiGetResult(ids, getIssuesById(ids)));
     }
 
+    /**
+     * Returns the issues found among the ids. Cached issues are copied, the others are loaded with chunked {@code IN} queries.
+     */
+    public Map<Long, Issue> getIssuesById(Collection<Long> ids) {
+        List<Long> candidates = ids.stream()
+                .filter(id -> !idFilter.isMissingIssue(id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+        return entityCache.getIssues(candidates, keys -> findAllInChunks(keys, issueRepository::findAllById).stream()
+                .collect(Collectors.toMap(Issue::getId, Function.identity())));
+    }
+
+    @Transactional
     public ResponseEntity<Object> editIssue(Map<String, Object> issueMap, Long id) {
-        Issue issue = getIssueById(id);
+        Issue issue = issueRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
         String title = (String) issueMap.get(Issue.TITLE_FIELD);
         if (title.length() < 1) {
@@ -98,16 +345,67 @@ public class IssueService {
         }
 
         Issue savedIssue = issueRepository.save(issue);
+        afterCommit(() -> {
+            entityCache.evictIssue(savedIssue);
+            issueSearchIndex.indexIssue(savedIssue);
+        });
+        changeLog.record(Change.upsert(Change.Type.ISSUE, id), Change.upsert(Change.Type.EMPLOYEE, employeeId(savedIssue)));
+        issueEventHub.publish(IssueEvent.issueUpdated(savedIssue));
         return ResponseEntity.status(HttpStatus.OK).body(savedIssue);
     }
 
     public ResponseEntity<List<Issue>> getEmployeeIssues(Long id) {
         Employee employee = employeeService.getEmployeeById(id);
 
-        return ResponseEntity.status(HttpStatus.OK).body(issueRepository.findByEmployee(employee));
+        List<Issue> issues = entityCache.getEmployeeIssues(id, key -> issueRepository.findByEmployee(employee));
+        return ResponseEntity.status(HttpStatus.OK).body(issues);
+    }
+
+    public ResponseEntity<Object> getEmployeeIssues(Long id, String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.ISSUE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+        if (idFilter.isMissingEmployee(id) || !employeeRepository.existsById(id)) {
+            throw notFound();
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(graphFetcher.findByParentId(GraphType.ISSUE, id, selection));
+    }
+
+    public SseEmitter subscribe(Long id) {
+        if (id != null) {
+            getIssueById(id);
+        }
+        return issueEventHub.subscribe(id);
+    }
+
+    public ResponseEntity<IssueStats> getIssueStats(Long id) {
+        IssueStats stats = aggregateCounters.getIssueStats(id);
+        if (stats == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(stats);
+    }
+
+    public ResponseEntity<UniqueLikers> getIssueLikers(Long id) {
+        UniqueLikers likers = uniqueLikerCounter.getIssueLikers(id);
+        if (likers == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(likers);
     }
 
     public ResponseEntity<List<Issue>> search(String query) {
+        if (issueSearchIndex.isReady()) {
+            List<Issue> issueList = new ArrayList<>(issueRepository.findAllById(issueSearchIndex.search(query)));
+            issueList.sort(Comparator.comparing(Issue::getId));
+            return ResponseEntity.status(HttpStatus.OK).body(issueList);
+        }
+
         List<Issue> issueList = issueRepository.findAll();
         String lowerCaseQuery = query.toLowerCase();
 
@@ -121,17 +419,144 @@ public class IssueService {
         return ResponseEntity.status(HttpStatus.OK).body(issueList);
     }
 
+    /**
+     * Searches like {@link #search(String)} and loads only the selected fields of the issues found.
+     */
+    public ResponseEntity<Object> search(String query, String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.ISSUE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+
+        List<Long> ids = issueSearchIndex.isReady() ? issueSearchIndex.search(query)
+                : issueRepository.findIdsByText(containsPattern(query));
+        Map<Long, Map<String, Object>> issues = new TreeMap<>(graphFetcher.findByIds(GraphType.ISSUE, ids, selection));
+        return ResponseEntity.status(HttpStatus.OK).body(new ArrayList<>(issues.values()));
+    }
+
     public ResponseEntity<List<Issue>> getIssueList() {
         return ResponseEntity.status(HttpStatus.OK).body(issueRepository.findAll());
     }
 
+    public ResponseEntity<Object> getIssueList(String fields) {
+        FieldSelection selection;
+        try {
+            selection = GraphType.ISSUE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(graphFetcher.findAll(GraphType.ISSUE, selection));
+    }
+
+    public ResponseEntity<Object> getIssuePage(Long after, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Issue> issues = issueRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after,
+                PageRequest.of(0, pageSize + 1));
+
+        return ResponseEntity.status(HttpStatus.OK).body(createKeysetPage(issues, pageSize, Issue::getId));
+    }
+
+    public ResponseEntity<Object> getIssuePage(Long after, Integer limit, String fields) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The 'limit' param should be between 1 and " + MAX_PAGE_SIZE));
+        }
+        FieldSelection selection;
+        try {
+            selection = GraphType.ISSUE.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Map<String, Object>> issues = graphFetcher.findPage(GraphType.ISSUE, after == null ? 0L : after,
+                pageSize + 1, selection);
+
+        return ResponseEntity.status(HttpStatus.OK).body(createKeysetPage(issues, pageSize, issue -> (Long) issue.get(Issue.ID_FIELD)));
+    }
+
+    public ResponseEntity<StreamingResponseBody> streamIssueList() {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entityStreamer.jsonArray(issueRepository::streamAllByOrderByIdAsc));
+    }
+
+    public Flux<Issue> publishIssueList() {
+        return entityPublisher.keysetPages(
+                (after, pageable) -> withComments(issueRepository.findByIdGreaterThanOrderByIdAsc(after, pageable)),
+                Issue::getId);
+    }
+
+    private List<Issue> withComments(List<Issue> issues) {
+        // issues are written after the transaction ends, batch fetching loads the comments of a page at once
+        issues.forEach(issue -> Hibernate.initialize(issue.getComments()));
+        return issues;
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportIssues() {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(entityStreamer.ndjson(issueRepository::streamAllByOrderByIdAsc));
+    }
+
+    /**
+     * Deletes the issue and the comments loaded with it in one transaction, so every deleted comment
+     * gets its tombstone.
+     */
+    @Transactional
     public ResponseEntity<Void> removeIssue(Long id) {
         Optional<Issue> optionalPost = issueRepository.findById(id);
         if (optionalPost.isPresent()) {
+            Issue issue = optionalPost.get();
+            List<Change> changes = new ArrayList<>();
+            List<Long> commentIds = new ArrayList<>();
+            if (issue.getComments() != null) {
+                issue.getComments().forEach(comment -> {
+                    commentIds.add(comment.getId());
+                    changes.add(Change.delete(Change.Type.COMMENT, comment.getId()));
+                });
+            }
             issueRepository.deleteById(id);
+            aggregateCounters.removeIssue(issue);
+            uniqueLikerCounter.removeIssue(id, commentIds);
+            afterCommit(() -> {
+                entityCache.evictIssue(issue);
+                issueSearchIndex.removeIssue(id);
+                topCommentIndex.removeIssue(id);
+                idFilter.removeIssue(id);
+            });
+
+            changes.add(Change.delete(Change.Type.ISSUE, id));
+            changes.add(Change.upsert(Change.Type.EMPLOYEE, employeeId(issue)));
+            changeLog.record(changes);
+            issueEventHub.publish(IssueEvent.issueDeleted(id));
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Returns a case-insensitive {@code like} pattern matching the query anywhere, with a backslash as the escape character.
+     */
+    static String containsPattern(String query) {
+        String escaped = query.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    static Long employeeId(Issue issue) {
+        return issue.getEmployee() == null ? null : issue.getEmployee().getId();
+    }
 }
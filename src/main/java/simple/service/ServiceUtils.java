@@ -1,13 +1,137 @@
 package simple.service;
 
-import java.util.HashMap;
-import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import simple.dto.KeysetPage;
+import simple.dto.MultiGetResult;
+import simple.dto.VersionStamp;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ServiceUtils {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int DEFAULT_TOP_SIZE = 10;
+    public static final int MAX_BULK_SIZE = 1000;
+    public static final int IN_CHUNK_SIZE = 500;
+
+    /**
+     * Response for ids the id filter rules out. Built once and shared, its headers and body are read-only.
+     */
+    public static final ResponseEntity<Object> NOT_FOUND_RESPONSE = ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body(Map.of("error", "Not found"));
+
+    /**
+     * Returns the exception for unknown ids on hot lookup paths. It has no stack trace, so a miss costs
+     * little more than the status it maps to. A new one per throw, since a shared throwable would collect
+     * the suppressed exceptions and causes of every request that threw it.
+     */
+    public static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND) {
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+    }
+
     public static Map<String, String> createErrorResponse(String errorMessage) {
         Map<String, String> errorResponse = new HashMap<>();
         errorResponse.put("error", errorMessage);
 
         return errorResponse;
     }
+
+    /**
+     * Builds a page from rows fetched with {@code pageSize + 1} as the limit,
+     * so the extra row tells whether a next page exists.
+     */
+    public static <T> KeysetPage<T> createKeysetPage(List<T> rows, int pageSize, Function<T, Long> idGetter) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new KeysetPage<>(items, idGetter.apply(items.get(pageSize - 1)));
+    }
+
+    /**
+     * Returns an error message if the ids of a multi-get are missing or too many, {@code null} otherwise.
+     */
+    public static String validateIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BULK_SIZE) {
+            return "The 'ids' param should contain from 1 to " + MAX_BULK_SIZE + " ids";
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            return "The 'ids' param should contain only numbers";
+        }
+        return null;
+    }
+
+    /**
+     * Keys the found items by id in the requested order and lists the ids that were not found.
+     */
+    public static <T> MultiGetResult<T> createMultiGetResult(List<Long> ids, Map<Long, T> found) {
+        Map<Long, T> items = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T item = found.get(id);
+            if (item == null) {
+                missing.add(id);
+            } else {
+                items.put(id, item);
+            }
+        }
+        return new MultiGetResult<>(items, missing);
+    }
+
+    /**
+     * Runs an {@code IN} query once per chunk of {@link #IN_CHUNK_SIZE} ids, so a large list does not
+     * hit the bind parameter limit of the database.
+     */
+    public static <T> List<T> findAllInChunks(List<Long> ids, Function<List<Long>, List<T>> finder) {
+        if (ids.size() <= IN_CHUNK_SIZE) {
+            return finder.apply(ids);
+        }
+        List<T> result = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            result.addAll(finder.apply(ids.subList(from, Math.min(ids.size(), from + IN_CHUNK_SIZE))));
+        }
+        return result;
+    }
+
+    /**
+     * Builds an entity tag from the stamps of every table a response is made of.
+     */
+    public static String createTag(VersionStamp... stamps) {
+        return Stream.of(stamps).map(VersionStamp::toString).collect(Collectors.joining("-"));
+    }
+
+    /**
+     * Extends a tag with the hash of the likes not flushed yet, for responses that include them.
+     */
+    public static String appendPendingLikes(String tag, long pendingLikesHash) {
+        return pendingLikesHash == 0 ? tag : tag + "-" + Long.toHexString(pendingLikesHash);
+    }
+
+    /**
+     * Runs the action once the surrounding transaction commits, or right away without one.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
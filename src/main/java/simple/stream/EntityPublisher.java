@@ -0,0 +1,53 @@
+package simple.stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Publishes rows as a {@link Flux} that reads one keyset page when the subscriber asks for more,
+ * each page in its own read-only transaction on the bounded-elastic scheduler. At most one page
+ * is held in memory, and no connection is held while a slow client catches up.
+ */
+@Component
+public class EntityPublisher {
+
+    static final int PAGE_SIZE = 100;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * @param pageLoader loads the page of rows with ids greater than the given one, ordered by id
+     * @param id         id of a row, used as the start of the next page
+     */
+    public <T> Flux<T> keysetPages(BiFunction<Long, Pageable, List<T>> pageLoader, Function<T, Long> id) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE);
+
+        return Flux.<List<T>, Long>generate(() -> 0L, (after, sink) -> {
+                    List<T> page = transactionTemplate.execute(status -> pageLoader.apply(after, pageable));
+                    if (page == null || page.isEmpty()) {
+                        sink.complete();
+                        return after;
+                    }
+                    sink.next(page);
+                    if (page.size() < PAGE_SIZE) {
+                        sink.complete();
+                    }
+                    return id.apply(page.get(page.size() - 1));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(Function.identity(), 1);
+    }
+}
@@ -0,0 +1,81 @@
+package simple.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes repository streams straight to the response as rows come off the JDBC cursor,
+ * either as one JSON array or as newline-delimited JSON. A single generator is reused for
+ * all rows and the persistence context is cleared after every flushed chunk, so memory stays
+ * flat for any row count.
+ */
+@Component
+public class EntityStreamer {
+
+    static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> StreamingResponseBody jsonArray(Supplier<Stream<T>> rows) {
+        return outputStream -> write(rows, outputStream, false);
+    }
+
+    public <T> StreamingResponseBody ndjson(Supplier<Stream<T>> rows) {
+        return outputStream -> write(rows, outputStream, true);
+    }
+
+    private <T> void write(Supplier<Stream<T>> rows, OutputStream outputStream, boolean lineDelimited) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<T> stream = rows.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (lineDelimited) {
+                    generator.setRootValueSeparator(null);
+                } else {
+                    generator.writeStartArray();
+                }
+
+                Iterator<T> iterator = stream.iterator();
+                int count = 0;
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    if (lineDelimited) {
+                        generator.writeRaw('\n');
+                    }
+                    if (++count % CHUNK_SIZE == 0) {
+                        generator.flush();
+                        entityManager.clear();
+                    }
+                }
+                if (!lineDelimited) {
+                    generator.writeEndArray();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,334 @@
+package simple.write;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import simple.entity.Comment;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Group commit of validated comments. Requests put their comment into a bounded queue and a single
+ * writer thread saves whatever has accumulated in one transaction, as soon as {@code max-batch-size}
+ * comments are waiting or the oldest has waited {@code max-delay-ms}. Each request gets a future
+ * completed with the saved comment after the commit.
+ * <p>
+ * A batch that fails before its commit is retried one comment per transaction, so one bad comment
+ * fails only its own request. A failure after the commit, in a post-commit hook, is only logged:
+ * the comments are saved and must not be inserted again. Comments still queued on shutdown are
+ * committed before the writer stops.
+ */
+@Slf4j
+@Component
+public class CommentWriteQueue {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TransactionOperations transactionOperations;
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+
+    private final Recorder batchSizes = new Recorder(3);
+    private final Recorder commitLatency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram cumulativeBatchSizes = new Histogram(3);
+    private final Histogram cumulativeCommitLatency = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram cumulativeLatency = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private BlockingQueue<PendingComment> queue;
+    private UnaryOperator<List<Comment>> writer;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @Autowired
+    public CommentWriteQueue(@Value("${app.comments.group-commit.enabled:false}") boolean enabled,
+                             @Value("${app.comments.group-commit.queue-capacity:10000}") int queueCapacity,
+                             @Value("${app.comments.group-commit.max-batch-size:500}") int maxBatchSize,
+                             @Value("${app.comments.group-commit.max-delay-ms:5}") long maxDelayMs,
+                             TransactionOperations transactionOperations) {
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.transactionOperations = transactionOperations;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the writer thread if the mode is enabled. The writer saves a batch and returns the saved
+     * comments in the same order, it is called inside the batch transaction.
+     */
+    public synchronized void start(UnaryOperator<List<Comment>> writer) {
+        if (!enabled || running) {
+            return;
+        }
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.running = true;
+        writerThread = new Thread(this::run, "comment-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writerThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Queues a validated comment. Returns {@code null} if the queue is full or the mode is off.
+     */
+    public CompletableFuture<Comment> submit(Comment comment) {
+        if (!running) {
+            return null;
+        }
+        PendingComment pending = new PendingComment(comment);
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            return null;
+        }
+        return pending.result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", queue == null ? 0 : queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("committed", committed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("batches", batches.sum());
+        synchronized (this) {
+            Histogram sizes = cumulative(batchSizes, cumulativeBatchSizes);
+            stats.put("batchSizeMean", sizes.getMean());
+            stats.put("batchSizeP99", sizes.getValueAtPercentile(99.0));
+            stats.put("batchSizeMax", sizes.getMaxValue());
+            Histogram commits = cumulative(commitLatency, cumulativeCommitLatency);
+            stats.put("commitLatencyP50", toMillis(commits.getValueAtPercentile(50.0)));
+            stats.put("commitLatencyP99", toMillis(commits.getValueAtPercentile(99.0)));
+            stats.put("commitLatencyMax", toMillis(commits.getMaxValue()));
+            Histogram total = cumulative(latency, cumulativeLatency);
+            stats.put("latencyP50", toMillis(total.getValueAtPercentile(50.0)));
+            stats.put("latencyP99", toMillis(total.getValueAtPercentile(99.0)));
+            stats.put("latencyMax", toMillis(total.getMaxValue()));
+        }
+        return stats;
+    }
+
+    /**
+     * Renders the queue depth, the counters and the batch size and latency summaries in the Prometheus text format.
+     */
+    public String getPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP app_comment_queue_depth Comments waiting for a group commit.\n");
+        text.append("# TYPE app_comment_queue_depth gauge\n");
+        text.append("app_comment_queue_depth ").append(queue == null ? 0 : queue.size()).append('\n');
+        appendCounter(text, "app_comment_group_commits_total", "Group commit transactions.", batches);
+        appendCounter(text, "app_comment_committed_total", "Comments committed by group commits.", committed);
+        appendCounter(text, "app_comment_failed_total", "Queued comments that failed to commit.", failed);
+        appendCounter(text, "app_comment_rejected_total", "Comments rejected because the queue was full.", rejected);
+        synchronized (this) {
+            appendSummary(text, "app_comment_group_commit_size", "Comments per group commit.",
+                    cumulative(batchSizes, cumulativeBatchSizes), 1);
+            appendSummary(text, "app_comment_group_commit_seconds", "Duration of group commit transactions.",
+                    cumulative(commitLatency, cumulativeCommitLatency), 1e-6);
+            appendSummary(text, "app_comment_create_seconds", "Time from queueing a comment to its commit.",
+                    cumulative(latency, cumulativeLatency), 1e-6);
+        }
+        return text.toString();
+    }
+
+    private void run() {
+        List<PendingComment> batch = new ArrayList<>(maxBatchSize);
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.queuedAt + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || wait <= 0 || !running) {
+                        break;
+                    }
+                    PendingComment next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                log.error("Group commit of {} comments failed", batch.size(), e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        // a request may have queued its comment after the last poll
+        for (PendingComment pending = queue.poll(); pending != null; pending = queue.poll()) {
+            fail(pending, new IllegalStateException("The comment queue is stopped"));
+        }
+    }
+
+    private void commit(List<PendingComment> batch) {
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            log.warn("Group commit of {} comments failed, committing them one by one", batch.size(), e);
+            for (PendingComment pending : batch) {
+                // the failed attempt assigned an id and a version, the retry inserts the comment anew
+                pending.comment.setId(null);
+                pending.comment.setVersion(null);
+                try {
+                    write(List.of(pending));
+                } catch (RuntimeException single) {
+                    fail(pending, single);
+                }
+            }
+        }
+    }
+
+    private void write(List<PendingComment> batch) {
+        List<Comment> comments = new ArrayList<>(batch.size());
+        batch.forEach(pending -> comments.add(pending.comment));
+
+        BatchWrite write = new BatchWrite(comments);
+        long start = System.nanoTime();
+        try {
+            transactionOperations.executeWithoutResult(status -> write.run());
+        } catch (RuntimeException e) {
+            if (!write.committed) {
+                throw e;
+            }
+            log.error("Post-commit work of {} committed comments failed", batch.size(), e);
+        }
+        long end = System.nanoTime();
+
+        batches.increment();
+        committed.add(batch.size());
+        batchSizes.recordValue(batch.size());
+        commitLatency.recordValue(toMicros(end - start));
+        for (int i = 0; i < batch.size(); i++) {
+            PendingComment pending = batch.get(i);
+            latency.recordValue(toMicros(end - pending.queuedAt));
+            pending.result.complete(write.saved.get(i));
+        }
+    }
+
+    private void fail(PendingComment pending, RuntimeException e) {
+        failed.increment();
+        pending.result.completeExceptionally(e);
+    }
+
+    private static Histogram cumulative(Recorder recorder, Histogram cumulative) {
+        cumulative.add(recorder.getIntervalHistogram());
+        return cumulative.copy();
+    }
+
+    private static void appendCounter(StringBuilder text, String name, String help, LongAdder counter) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(counter.sum()).append('\n');
+    }
+
+    private static void appendSummary(StringBuilder text, String name, String help, Histogram histogram, double scale) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : new double[]{0.5, 0.99}) {
+            text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getValueAtPercentile(quantile * 100) * scale).append('\n');
+        }
+        text.append(name).append("_sum ").append(histogram.getMean() * histogram.getTotalCount() * scale).append('\n');
+        text.append(name).append("_count ").append(histogram.getTotalCount()).append('\n');
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static double toMillis(double micros) {
+        return micros / 1_000.0;
+    }
+
+    /**
+     * Saves a batch and tells whether its transaction committed, also when a post-commit hook throws
+     * afterwards, since completion callbacks run even then.
+     */
+    private final class BatchWrite implements TransactionSynchronization {
+
+        private final List<Comment> comments;
+        private List<Comment> saved;
+        private volatile boolean committed;
+
+        private BatchWrite(List<Comment> comments) {
+            this.comments = comments;
+        }
+
+        private void run() {
+            boolean synchronizationActive = TransactionSynchronizationManager.isSynchronizationActive();
+            if (synchronizationActive) {
+                TransactionSynchronizationManager.registerSynchronization(this);
+            }
+            saved = writer.apply(comments);
+            if (!synchronizationActive) {
+                committed = true;
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            committed = status == STATUS_COMMITTED;
+        }
+    }
+
+    private static final class PendingComment {
+        private final Comment comment;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Comment> result = new CompletableFuture<>();
+
+        private PendingComment(Comment comment) {
+            this.comment = comment;
+        }
+    }
+}
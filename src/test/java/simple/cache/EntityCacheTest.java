@@ -0,0 +1,122 @@
+package simple.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+import simple.entity.Comment;
+import simple.entity.Issue;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+    private final EntityCache entityCache = new EntityCache(100, 60, TransactionOperations.withoutTransaction());
+    private final List<Set<Long>> loads = new ArrayList<>();
+
+    @Test
+    void getIssues_WithCachedAndMissingIds_LoadsOnlyMisses() {
+        entityCache.getIssue(1L, this::loadIssue);
+
+        var issues = entityCache.getIssues(List.of(2L, 1L, 3L), this::loadIssues);
+
+        assertEquals(List.of(2L, 1L, 3L), new ArrayList<>(issues.keySet()));
+        assertEquals(List.of(Set.of(1L), Set.of(2L, 3L)), loads);
+    }
+
+    @Test
+    void getIssues_WithAllIdsMissing_LoadsThemInOneCall() {
+        var issues = entityCache.getIssues(List.of(1L, 2L, 3L), this::loadIssues);
+
+        assertEquals(Set.of(1L, 2L, 3L), issues.keySet());
+        assertEquals(List.of(Set.of(1L, 2L, 3L)), loads);
+    }
+
+    @Test
+    void getIssues_WithCachedIssue_ReturnsCopy() {
+        var loaded = entityCache.getIssue(1L, this::loadIssue);
+
+        var cached = entityCache.getIssues(List.of(1L), this::loadIssues).get(1L);
+        cached.setTitle("Changed");
+
+        assertNotSame(loaded, cached);
+        assertEquals("Issue 1", entityCache.getIssues(List.of(1L), this::loadIssues).get(1L).getTitle());
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    void getIssues_WithLoadedIds_DoesNotCacheThem() {
+        entityCache.getIssues(List.of(1L, 2L), this::loadIssues);
+        entityCache.getIssues(List.of(1L, 2L), this::loadIssues);
+
+        assertEquals(List.of(Set.of(1L, 2L), Set.of(1L, 2L)), loads);
+    }
+
+    @Test
+    void getIssues_WithEvictionDuringLoad_DoesNotServeLoadedRowsLater() {
+        entityCache.getIssues(List.of(1L), ids -> {
+            Map<Long, Issue> issues = loadIssues(ids);
+            // a writer commits and evicts the issue while the rows read before it are still in flight
+            entityCache.evictIssue(1L, null);
+            return issues;
+        });
+
+        var issue = entityCache.getIssue(1L, id -> Issue.builder().id(id).title("Edited").build());
+
+        assertEquals("Edited", issue.getTitle());
+    }
+
+    @Test
+    void getIssues_WithUnknownIds_OmitsThemAndLoadsThemAgain() {
+        assertTrue(entityCache.getIssues(List.of(11L, 12L), this::loadIssues).isEmpty());
+        assertTrue(entityCache.getIssues(List.of(11L), this::loadIssues).isEmpty());
+
+        assertEquals(List.of(Set.of(11L, 12L), Set.of(11L)), loads);
+    }
+
+    @Test
+    void getIssueComments_WithCachedAndMissingIds_LoadsOnlyMisses() {
+        entityCache.getIssueComments(1L, id -> loadComments(List.of(id)).get(id));
+
+        var comments = entityCache.getIssueComments(List.of(1L, 2L), this::loadComments);
+
+        assertEquals(1L, comments.get(1L).get(0).getId());
+        assertEquals(2L, comments.get(2L).get(0).getId());
+        assertEquals(List.of(Set.of(1L), Set.of(2L)), loads);
+    }
+
+    @Test
+    void getIssueComments_AfterEvictIssue_LoadsAgain() {
+        entityCache.getIssueComments(1L, id -> loadComments(List.of(id)).get(id));
+        entityCache.getIssueComments(2L, id -> loadComments(List.of(id)).get(id));
+
+        entityCache.evictIssue(1L, null);
+        entityCache.getIssueComments(List.of(1L, 2L), this::loadComments);
+
+        assertEquals(List.of(Set.of(1L), Set.of(2L), Set.of(1L)), loads);
+    }
+
+    private Issue loadIssue(Long id) {
+        return loadIssues(List.of(id)).get(id);
+    }
+
+    private Map<Long, Issue> loadIssues(List<Long> ids) {
+        loads.add(new HashSet<>(ids));
+        Map<Long, Issue> issues = new HashMap<>();
+        for (Long id : ids) {
+            if (id < 10) {
+                issues.put(id, Issue.builder().id(id).title("Issue " + id).build());
+            }
+        }
+        return issues;
+    }
+
+    private Map<Long, List<Comment>> loadComments(List<Long> issueIds) {
+        loads.add(new HashSet<>(issueIds));
+        Map<Long, List<Comment>> comments = new HashMap<>();
+        for (Long id : issueIds) {
+            comments.put(id, List.of(Comment.builder().id(id).text("Comment " + id).build()));
+        }
+        return comments;
+    }
+}
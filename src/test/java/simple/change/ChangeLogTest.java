@@ -0,0 +1,116 @@
+package simple.change;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import simple.entity.Change;
+import simple.repository.ChangeRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "app.changes.tombstone-retention-ms=0")
+@Import(ChangeLog.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChangeLogTest {
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    ChangeRepository changeRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM " + Change.TABLE);
+    }
+
+    private List<Change> changesSince(long revision) {
+        return changeRepository.findByRevisionBetweenOrderByRevisionAsc(revision + 1, Long.MAX_VALUE, PageRequest.of(0, 100));
+    }
+
+    @Test
+    void record_WithSeveralCalls_AssignsIncreasingRevisions() {
+        changeLog.record(Change.upsert(Change.Type.EMPLOYEE, 1L), Change.upsert(Change.Type.ISSUE, 2L));
+        changeLog.record(Change.delete(Change.Type.ISSUE, 2L), Change.upsert(Change.Type.COMMENT, null));
+
+        List<Change> changes = changesSince(0);
+
+        assertEquals(3, changes.size());
+        assertTrue(changes.get(0).getRevision() < changes.get(1).getRevision());
+        assertTrue(changes.get(1).getRevision() < changes.get(2).getRevision());
+        assertTrue(changes.get(2).isDeleted());
+    }
+
+    @Test
+    void record_InRolledBackTransaction_StoresNothing() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeLog.record(Change.upsert(Change.Type.ISSUE, 1L));
+            status.setRollbackOnly();
+        });
+        changeLog.record(Change.upsert(Change.Type.ISSUE, 2L));
+
+        List<Change> changes = changesSince(0);
+
+        assertEquals(List.of(2L), changes.stream().map(Change::getEntityId).collect(Collectors.toList()));
+        assertEquals(changes.get(0).getRevision(), changeLog.getCommittedRevision());
+    }
+
+    @Test
+    void getCommittedRevision_WithLowerRevisionInFlight_StopsBeforeIt() {
+        changeLog.record(Change.upsert(Change.Type.ISSUE, 1L));
+        long committed = changeLog.getCommittedRevision();
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeLog.record(Change.upsert(Change.Type.ISSUE, 2L));
+            requiresNew.executeWithoutResult(inner -> changeLog.record(Change.upsert(Change.Type.ISSUE, 3L)));
+
+            assertEquals(3, changesSince(0).size());
+            assertEquals(committed, changeLog.getCommittedRevision());
+        });
+
+        assertEquals(changesSince(0).get(2).getRevision(), changeLog.getCommittedRevision());
+    }
+
+    @Test
+    void compact_WithSupersededChanges_KeepsLatestChangeOfEveryEntity() {
+        changeLog.record(Change.upsert(Change.Type.ISSUE, 1L), Change.upsert(Change.Type.ISSUE, 2L));
+        changeLog.record(Change.upsert(Change.Type.ISSUE, 1L), Change.upsert(Change.Type.COMMENT, 1L));
+
+        changeLog.compact();
+
+        List<Change> changes = changesSince(0);
+        assertEquals(List.of(2L, 1L, 1L), changes.stream().map(Change::getEntityId).collect(Collectors.toList()));
+        assertEquals(0, changeLog.getPurgedRevision());
+    }
+
+    @Test
+    void compact_WithExpiredTombstones_DropsThemAndRaisesPurgedRevision() {
+        changeLog.record(Change.upsert(Change.Type.ISSUE, 1L), Change.delete(Change.Type.ISSUE, 2L));
+        long tombstoneRevision = changesSince(0).get(1).getRevision();
+
+        changeLog.compact();
+
+        assertEquals(1, changesSince(0).size());
+        assertEquals(tombstoneRevision, changeLog.getPurgedRevision());
+    }
+}
@@ -0,0 +1,100 @@
+package simple.counter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import simple.dto.CounterDrift;
+import simple.dto.Reconciliation;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(AggregateCounters.class)
+class AggregateCountersTest {
+
+    @Autowired
+    AggregateCounters aggregateCounters;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Employee employee;
+    private Issue issue;
+
+    @BeforeEach
+    void setUp() {
+        employee = entityManager.persist(Employee.builder().name("Ivan").lastName("Ivanov").build());
+        issue = Issue.builder().title("Title").description("Description").build();
+        employee.addIssue(issue);
+        entityManager.persist(issue);
+        entityManager.flush();
+        aggregateCounters.addIssue(issue);
+    }
+
+    private Comment addComment(String text, int likes) {
+        Comment comment = Comment.builder().text(text).likes(likes).build();
+        issue.addComment(comment);
+        entityManager.persist(comment);
+        entityManager.flush();
+        return comment;
+    }
+
+    @Test
+    void getIssueStats_WithAddedAndRemovedComments_ReturnsCounts() {
+        Comment first = addComment("First", 3);
+        Comment second = addComment("Second", 4);
+        aggregateCounters.addComments(List.of(first, second));
+        aggregateCounters.removeComment(first);
+
+        assertEquals(1, aggregateCounters.getEmployeeStats(employee.getId()).getIssueCount());
+        assertEquals(1, aggregateCounters.getIssueStats(issue.getId()).getCommentCount());
+        assertEquals(4, aggregateCounters.getIssueStats(issue.getId()).getLikeCount());
+    }
+
+    @Test
+    void getIssueStats_WithMissingIssue_ReturnsNull() {
+        assertNull(aggregateCounters.getIssueStats(-1L));
+        assertNull(aggregateCounters.getEmployeeStats(-1L));
+    }
+
+    @Test
+    void refreshLikes_WithFlushedLikes_SetsSumOfCommentLikes() {
+        addComment("First", 3);
+        jdbcTemplate.update("UPDATE comment SET likes = likes + 5 WHERE post = ?", issue.getId());
+
+        aggregateCounters.refreshLikes(List.of(issue.getId()));
+
+        assertEquals(8, aggregateCounters.getIssueStats(issue.getId()).getLikeCount());
+    }
+
+    @Test
+    void reconcile_WithDriftedCounters_ReportsAndFixesThem() {
+        addComment("First", 2);
+        aggregateCounters.addIssue(issue);
+
+        Reconciliation reconciliation = aggregateCounters.reconcile();
+
+        assertEquals(3, reconciliation.getDriftCount());
+        CounterDrift employeeDrift = reconciliation.getDrifts().get(0);
+        assertEquals(Employee.ISSUE_COUNT_FIELD, employeeDrift.getCounter());
+        assertEquals(2, employeeDrift.getStored());
+        assertEquals(1, employeeDrift.getActual());
+        assertSame(reconciliation, aggregateCounters.getLastReconciliation());
+        assertEquals(1, aggregateCounters.getEmployeeStats(employee.getId()).getIssueCount());
+        assertEquals(1, aggregateCounters.getIssueStats(issue.getId()).getCommentCount());
+        assertEquals(2, aggregateCounters.getIssueStats(issue.getId()).getLikeCount());
+        assertEquals(0, aggregateCounters.reconcile().getDriftCount());
+    }
+}
@@ -0,0 +1,190 @@
+package simple.counter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.entity.Change;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.search.TopCommentIndex;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentLikeCounterTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    TransactionOperations transactionOperations;
+
+    @Mock
+    EntityCache entityCache;
+
+    @Mock
+    ChangeLog changeLog;
+
+    @Mock
+    AggregateCounters aggregateCounters;
+
+    @Mock
+    TopCommentIndex topCommentIndex;
+
+    @InjectMocks
+    CommentLikeCounter counter;
+
+    private final Comment comment = Comment.builder()
+            .id(1L)
+            .issue(Issue.builder().id(2L).employee(Employee.builder().id(3L).build()).build())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                .doInTransaction(new SimpleTransactionStatus())).when(transactionOperations).execute(any());
+    }
+
+    @Test
+    void add_WithUntrackedComment_ReturnsFalse() {
+        assertFalse(counter.add(1L, 1));
+        assertEquals(0, counter.getPendingDelta(1L));
+    }
+
+    @Test
+    void flush_WithPendingLikes_WritesOneBatchAndEvictsIssue() {
+        counter.add(comment, 1);
+        counter.add(1L, 1);
+        counter.add(1L, -1);
+        counter.add(1L, 1);
+
+        doReturn(new int[]{1}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        counter.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{2L, 1L}, batch.getValue().get(0));
+        assertEquals(0, counter.getPendingDelta(1L));
+        assertFalse(counter.add(1L, 1));
+        assertEquals(0, counter.getPendingLikesHash(2L));
+        verify(entityCache, times(1)).evictIssue(2L, 3L);
+        verify(changeLog, times(1)).record(List.of(
+                Change.upsert(Change.Type.COMMENT, 1L),
+                Change.upsert(Change.Type.ISSUE, 2L),
+                Change.upsert(Change.Type.EMPLOYEE, 3L)));
+    }
+
+    @Test
+    void flush_WithoutPendingLikes_SkipsDatabase() {
+        counter.add(comment, 1);
+        counter.add(1L, -1);
+
+        counter.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+        assertNull(counter.getIssueId(1L));
+    }
+
+    @Test
+    void flush_WithLikesDuringFlush_KeepsThemForNextFlush() {
+        counter.add(comment, 2);
+
+        doAnswer(invocation -> {
+            counter.add(1L, 1);
+            return new int[]{1};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        counter.flush();
+
+        assertEquals(1, counter.getPendingDelta(1L));
+        assertNotEquals(0, counter.getPendingLikesHash(2L));
+        assertTrue(counter.add(1L, 1));
+    }
+
+    @Test
+    void getPendingLikesHash_WithLikesOnOtherIssue_IgnoresThem() {
+        var other = Comment.builder()
+                .id(5L)
+                .issue(Issue.builder().id(4L).build())
+                .build();
+        counter.add(comment, 1);
+        long hash = counter.getPendingLikesHash(2L);
+
+        counter.add(other, 1);
+
+        assertNotEquals(0, hash);
+        assertEquals(hash, counter.getPendingLikesHash(2L));
+        assertNotEquals(0, counter.getPendingLikesHash(4L));
+        assertEquals(0, counter.getPendingLikesHash(6L));
+    }
+
+    @Test
+    void getEmployeePendingLikesHash_WithLikesOnOtherEmployee_IgnoresThem() {
+        var other = Comment.builder()
+                .id(5L)
+                .issue(Issue.builder().id(4L).employee(Employee.builder().id(6L).build()).build())
+                .build();
+        counter.add(comment, 1);
+        long hash = counter.getEmployeePendingLikesHash(3L);
+        long all = counter.getPendingLikesHash();
+
+        counter.add(other, 1);
+
+        assertNotEquals(0, hash);
+        assertEquals(hash, counter.getEmployeePendingLikesHash(3L));
+        assertNotEquals(0, counter.getEmployeePendingLikesHash(6L));
+        assertNotEquals(all, counter.getPendingLikesHash());
+    }
+
+    @Test
+    void flush_WithDeletedComment_StopsTrackingComment() {
+        counter.add(comment, 1);
+
+        doReturn(new int[]{0}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        counter.flush();
+
+        assertFalse(counter.add(1L, 1));
+    }
+
+    @Test
+    void flush_WithChangeLogFailure_KeepsPendingLikes() {
+        counter.add(comment, 3);
+
+        doReturn(new int[]{1}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        doThrow(new DataAccessResourceFailureException("down")).when(changeLog).record(anyList());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> counter.flush());
+        assertEquals(3, counter.getPendingDelta(1L));
+        verifyNoInteractions(topCommentIndex, aggregateCounters);
+    }
+
+    @Test
+    void flush_WithDatabaseFailure_KeepsPendingLikes() {
+        counter.add(comment, 3);
+
+        doThrow(new DataAccessResourceFailureException("down")).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> counter.flush());
+        assertEquals(3, counter.getPendingDelta(1L));
+    }
+}
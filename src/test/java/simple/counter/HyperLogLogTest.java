@@ -0,0 +1,121 @@
+package simple.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog sketchOf(int precision, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = from; i < to; i++) {
+            sketch.add("user-" + i);
+        }
+        return sketch;
+    }
+
+    @Test
+    void precisionFor_WithRelativeError_ReturnsSmallestPrecisionWithinError() {
+        assertEquals(12, HyperLogLog.precisionFor(0.02));
+        assertEquals(9, HyperLogLog.precisionFor(0.05));
+        assertTrue(new HyperLogLog(12).getRelativeError() <= 0.02);
+    }
+
+    @Test
+    void estimate_WithRepeatedValues_CountsEachValueOnce() {
+        HyperLogLog sketch = sketchOf(12, 0, 1000);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("user-" + i);
+        }
+
+        assertEquals(1000, sketch.estimate(), 1000 * 3 * sketch.getRelativeError());
+    }
+
+    @Test
+    void estimate_WithManyValues_StaysWithinError() {
+        HyperLogLog sketch = sketchOf(12, 0, 200_000);
+
+        assertEquals(200_000, sketch.estimate(), 200_000 * 3 * sketch.getRelativeError());
+    }
+
+    @Test
+    void toBytes_WithFewValues_WritesSparseSketch() {
+        HyperLogLog sketch = sketchOf(12, 0, 10);
+        byte[] bytes = sketch.toBytes();
+
+        assertTrue(bytes.length < 50);
+        assertEquals(sketch, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    void toBytes_WithManyValues_WritesDenseSketch() {
+        HyperLogLog sketch = sketchOf(12, 0, 100_000);
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(2 + (1 << 12), bytes.length);
+        assertEquals(sketch, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    void merge_WithOverlappingSketches_EstimatesUnion() {
+        HyperLogLog sketch = sketchOf(12, 0, 6000);
+        sketch.merge(sketchOf(12, 4000, 10_000));
+
+        assertEquals(sketchOf(12, 0, 10_000), sketch);
+    }
+
+    @Test
+    void merge_WithLowerPrecision_FoldsToLowerPrecision() {
+        HyperLogLog sketch = sketchOf(14, 0, 50_000);
+        sketch.merge(sketchOf(12, 50_000, 80_000));
+
+        assertEquals(12, sketch.getPrecision());
+        assertEquals(sketchOf(12, 0, 80_000), sketch);
+    }
+
+    @Test
+    void fromBytes_WithUnknownFormat_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{7, 12}));
+    }
+
+    @Test
+    void addHashConcurrently_FromSeveralThreads_MatchesSequentialSketch() throws InterruptedException {
+        HyperLogLog sketch = new HyperLogLog(12);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int from = t * 5000;
+            threads.add(new Thread(() -> {
+                for (int i = from; i < from + 5000; i++) {
+                    sketch.addHashConcurrently(HyperLogLog.hash("user-" + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(sketchOf(12, 0, 20_000), sketch.copyConcurrently());
+    }
+
+    @Test
+    void mergeConcurrently_WithHigherPrecision_FoldsOtherSketch() {
+        HyperLogLog sketch = sketchOf(12, 0, 6000);
+        sketch.mergeConcurrently(sketchOf(14, 4000, 10_000));
+
+        assertEquals(12, sketch.getPrecision());
+        HyperLogLog expected = sketchOf(12, 0, 6000);
+        expected.merge(sketchOf(14, 4000, 10_000));
+        assertEquals(expected, sketch);
+    }
+
+    @Test
+    void mergeConcurrently_WithLowerPrecision_ThrowsIllegalArgumentException() {
+        HyperLogLog sketch = sketchOf(12, 0, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> sketch.mergeConcurrently(sketchOf(10, 0, 10)));
+    }
+}
@@ -0,0 +1,126 @@
+package simple.counter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import simple.entity.Comment;
+import simple.entity.CommentLikers;
+import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.entity.IssueLikers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(UniqueLikerCounter.class)
+class UniqueLikerCounterTest {
+
+    @Autowired
+    UniqueLikerCounter counter;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Issue issue;
+    private Comment comment;
+
+    @BeforeEach
+    void setUp() {
+        Employee employee = entityManager.persist(Employee.builder().name("Ivan").lastName("Ivanov").build());
+        issue = Issue.builder().title("Title").description("Description").build();
+        employee.addIssue(issue);
+        entityManager.persist(issue);
+        comment = Comment.builder().text("Text").build();
+        issue.addComment(comment);
+        entityManager.persist(comment);
+        entityManager.flush();
+    }
+
+    @Test
+    void getCommentLikers_WithLikersBeforeAndAfterFlush_CountsEachLikerOnce() {
+        counter.add(comment.getId(), issue.getId(), "first");
+        counter.add(comment.getId(), issue.getId(), "second");
+        counter.flush();
+        counter.add(comment.getId(), issue.getId(), "second");
+        counter.add(comment.getId(), issue.getId(), "third");
+
+        assertEquals(3, counter.getCommentLikers(comment.getId()).getUniqueLikers());
+        assertEquals(3, counter.getIssueLikers(issue.getId()).getUniqueLikers());
+
+        counter.flush();
+
+        assertEquals(3, counter.getCommentLikers(comment.getId()).getUniqueLikers());
+        assertEquals(1, countRows(CommentLikers.TABLE));
+        assertEquals(1, countRows(IssueLikers.TABLE));
+    }
+
+    @Test
+    void getCommentLikers_WithoutLikers_ReturnsZero() {
+        assertEquals(0, counter.getCommentLikers(comment.getId()).getUniqueLikers());
+        assertEquals(0, counter.getIssueLikers(issue.getId()).getUniqueLikers());
+    }
+
+    @Test
+    void getCommentLikers_WithMissingComment_ReturnsNull() {
+        assertNull(counter.getCommentLikers(-1L));
+        assertNull(counter.getIssueLikers(-1L));
+    }
+
+    @Test
+    void removeIssue_WithStoredSketches_DeletesThem() {
+        counter.add(comment.getId(), issue.getId(), "first");
+        counter.flush();
+
+        counter.removeIssue(issue.getId(), List.of(comment.getId()));
+
+        assertEquals(0, countRows(CommentLikers.TABLE));
+        assertEquals(0, countRows(IssueLikers.TABLE));
+    }
+
+    @Test
+    void add_WithConcurrentFlushes_KeepsEveryLiker() throws InterruptedException {
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int from = t * 5000;
+            threads.add(new Thread(() -> {
+                for (int i = from; i < from + 5000; i++) {
+                    counter.add(comment.getId(), issue.getId(), "user-" + i);
+                }
+                done.incrementAndGet();
+            }));
+        }
+        threads.forEach(Thread::start);
+        while (done.get() < threads.size()) {
+            counter.flush();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        counter.flush();
+
+        HyperLogLog expected = new HyperLogLog(HyperLogLog.precisionFor(0.02));
+        for (int i = 0; i < 20_000; i++) {
+            expected.add("user-" + i);
+        }
+        byte[] stored = jdbcTemplate.queryForObject("SELECT likers FROM " + CommentLikers.TABLE + " WHERE id = ?",
+                byte[].class, comment.getId());
+        assertEquals(expected, HyperLogLog.fromBytes(stored));
+    }
+
+    private int countRows(String table) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,102 @@
+package simple.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import simple.entity.Comment;
+import simple.entity.Issue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+class IssueEventHubTest {
+
+    private IssueEventHub issueEventHub;
+    private MockMvc mockMvc;
+
+    @RestController
+    static class EventController {
+
+        private final IssueEventHub issueEventHub;
+
+        EventController(IssueEventHub issueEventHub) {
+            this.issueEventHub = issueEventHub;
+        }
+
+        @GetMapping("/events")
+        SseEmitter subscribe(@RequestParam(required = false) Long issueId) {
+            return issueEventHub.subscribe(issueId);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        issueEventHub = new IssueEventHub();
+        mockMvc = standaloneSetup(new EventController(issueEventHub)).build();
+    }
+
+    private MvcResult subscribe(String issueId) throws Exception {
+        return mockMvc.perform(issueId == null ? get("/events") : get("/events").param("issueId", issueId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    @Test
+    void publish_WithIssueSubscriber_SendsOnlyEventsOfThatIssue() throws Exception {
+        MvcResult result = subscribe("1");
+
+        issueEventHub.publish(IssueEvent.issueDeleted(2L));
+        issueEventHub.publish(IssueEvent.commentCreated(1L, Comment.builder().id(7L).text("Text").build()));
+        issueEventHub.publish(IssueEvent.issueDeleted(1L));
+
+        String content = awaitContent(result, "event:issue-deleted");
+        assertTrue(content.contains(":subscribed"));
+        assertTrue(content.contains("event:comment-created"));
+        assertTrue(content.contains("\"commentId\":7"));
+        assertTrue(content.contains("\"issueId\":1"));
+        assertFalse(content.contains("\"issueId\":2"));
+        assertTrue(content.indexOf("event:comment-created") < content.indexOf("event:issue-deleted"));
+    }
+
+    @Test
+    void publish_WithAllIssuesSubscriber_SendsEveryEvent() throws Exception {
+        MvcResult result = subscribe(null);
+
+        issueEventHub.publish(IssueEvent.issueUpdated(Issue.builder().id(1L).title("Title").build()));
+        issueEventHub.publish(IssueEvent.issueDeleted(2L));
+
+        String content = awaitContent(result, "\"issueId\":2");
+        assertTrue(content.contains("event:issue-updated"));
+        assertTrue(content.contains("\"title\":\"Title\""));
+        assertTrue(content.contains("event:issue-deleted"));
+        assertTrue(content.contains("\"issueId\":2"));
+    }
+
+    @Test
+    void close_WithSubscribers_RemovesAllSubscribers() throws Exception {
+        subscribe(null);
+        subscribe("1");
+        assertEquals(2, issueEventHub.getSubscriberCount());
+
+        issueEventHub.close();
+
+        assertEquals(0, issueEventHub.getSubscriberCount());
+    }
+}
@@ -0,0 +1,46 @@
+package simple.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    @Test
+    void dispatch_WithQueuedKeys_CallsBatchFunctionOnce() {
+        List<List<Integer>> calls = new ArrayList<>();
+        var loader = new BatchLoader<Integer, String>(keys -> {
+            calls.add(keys);
+            return keys.stream()
+                    .flatMap(key -> List.of(key + "a", key + "b").stream())
+                    .collect(Collectors.toList());
+        }, value -> Integer.parseInt(value.substring(0, value.length() - 1)));
+
+        loader.load(1);
+        loader.load(2);
+        loader.load(1);
+        loader.load(null);
+        loader.dispatch();
+        loader.load(2);
+        loader.dispatch();
+
+        assertEquals(List.of(List.of(1, 2)), calls);
+        assertEquals(List.of("1a", "1b"), loader.get(1));
+        assertEquals(List.of("2a", "2b"), loader.get(2));
+    }
+
+    @Test
+    void get_WithKeyWithoutChildren_ReturnsEmptyList() {
+        var loader = new BatchLoader<Integer, String>(keys -> List.of(), Integer::valueOf);
+
+        loader.load(1);
+        loader.dispatch();
+
+        assertEquals(List.of(), loader.get(1));
+        assertEquals(List.of(), loader.get(2));
+    }
+}
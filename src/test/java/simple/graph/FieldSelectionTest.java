@@ -0,0 +1,37 @@
+package simple.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldSelectionTest {
+
+    @Test
+    void parse_WithNestedFields_ReturnsTree() {
+        var selection = FieldSelection.parse(" name , issues ( title, comments(text,likes) ) ");
+
+        assertEquals(List.of("name", "issues"), List.copyOf(selection.names()));
+        assertTrue(selection.get("name").isEmpty());
+        var issues = selection.get("issues");
+        assertEquals(List.of("title", "comments"), List.copyOf(issues.names()));
+        assertEquals(List.of("text", "likes"), List.copyOf(issues.get("comments").names()));
+        assertNull(selection.get("lastName"));
+        assertEquals("name,issues(title,comments(text,likes))", selection.toString());
+    }
+
+    @Test
+    void parse_WithMalformedSelection_ThrowsIllegalArgument() {
+        for (String selection : List.of("", "name,", "issues(title", "issues()", "name)", "a b", "name,name")) {
+            assertThrows(IllegalArgumentException.class, () -> FieldSelection.parse(selection), selection);
+        }
+    }
+
+    @Test
+    void parse_WithTooDeepNesting_ThrowsIllegalArgument() {
+        String selection = "a(".repeat(20) + "b" + ")".repeat(20);
+
+        assertThrows(IllegalArgumentException.class, () -> FieldSelection.parse(selection));
+    }
+}
@@ -0,0 +1,91 @@
+package simple.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import simple.counter.CommentLikeCounter;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Import(GraphFetcher.class)
+class GraphFetcherTest {
+
+    @Autowired
+    GraphFetcher graphFetcher;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @MockBean
+    CommentLikeCounter commentLikeCounter;
+
+    private Employee employee;
+    private Issue first;
+    private Comment comment;
+
+    @BeforeEach
+    void setUp() {
+        employee = entityManager.persist(Employee.builder().name("Ivan").lastName("Ivanov").build());
+        first = addIssue("First");
+        addIssue("Second");
+        comment = Comment.builder().text("Text").likes(3).build();
+        first.addComment(comment);
+        entityManager.persist(comment);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Issue addIssue(String title) {
+        Issue issue = Issue.builder().title(title).description("Description").build();
+        employee.addIssue(issue);
+        return entityManager.persist(issue);
+    }
+
+    @Test
+    void findById_WithNestedSelection_ReturnsOnlySelectedFields() {
+        doReturn(2L).when(commentLikeCounter).getPendingDelta(comment.getId());
+
+        var node = graphFetcher.findById(GraphType.EMPLOYEE, employee.getId(),
+                GraphType.EMPLOYEE.select("name,issues(title,comments(likes))"));
+
+        assertEquals(List.of("id", "name", "issues"), List.copyOf(node.keySet()));
+        var issues = (List<Map<String, Object>>) node.get("issues");
+        assertEquals(2, issues.size());
+        assertEquals(Map.of("id", first.getId(), "title", "First",
+                "comments", List.of(Map.of("id", comment.getId(), "likes", 5))), issues.get(0));
+        assertEquals(List.of(), issues.get(1).get("comments"));
+    }
+
+    @Test
+    void findById_WithMissingEntity_ReturnsNull() {
+        assertNull(graphFetcher.findById(GraphType.ISSUE, -1L, GraphType.ISSUE.select("title")));
+    }
+
+    @Test
+    void findPage_WithLimit_ReturnsRowsAfterId() {
+        var page = graphFetcher.findPage(GraphType.ISSUE, first.getId(), 10, GraphType.ISSUE.select("title"));
+
+        assertEquals(1, page.size());
+        assertEquals("Second", page.get(0).get("title"));
+    }
+
+    @Test
+    void findByParentId_WithRelationWithoutFields_SelectsPlainFields() {
+        var issues = graphFetcher.findByParentId(GraphType.ISSUE, employee.getId(), GraphType.ISSUE.select("comments"));
+
+        assertEquals(Map.of("id", first.getId(), "comments",
+                List.of(Map.of("id", comment.getId(), "text", "Text", "likes", 3))), issues.get(0));
+    }
+}
@@ -0,0 +1,30 @@
+package simple.graph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphTypeTest {
+
+    @Test
+    void select_WithoutSelection_SelectsEveryField() {
+        var selection = GraphType.EMPLOYEE.select(null);
+
+        assertEquals("id,name,lastName,createdAt,issues(id,title,description,comments(id,text,likes))", selection.toString());
+    }
+
+    @Test
+    void select_WithNestedFields_ReturnsSelection() {
+        var selection = GraphType.ISSUE.select("title,comments(likes)");
+
+        assertEquals("title,comments(likes)", selection.toString());
+    }
+
+    @Test
+    void select_WithUnknownOrNestedPlainField_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> GraphType.ISSUE.select("title,employee"));
+        assertThrows(IllegalArgumentException.class, () -> GraphType.EMPLOYEE.select("issues(comments(likers))"));
+        assertThrows(IllegalArgumentException.class, () -> GraphType.ISSUE.select("title(id)"));
+        assertThrows(IllegalArgumentException.class, () -> GraphType.COMMENT.select("issues"));
+    }
+}
@@ -0,0 +1,51 @@
+package simple.id;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_WithAddedIds_ReturnsTrue() {
+        var filter = new BloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(id * 50);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id * 50));
+        }
+    }
+
+    @Test
+    void mightContain_WithAbsentIds_ReturnsFalseMostOfTheTime() {
+        var filter = new BloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(id);
+        }
+
+        int falsePositives = 0;
+        for (long id = 10_001; id <= 110_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void constructor_WithRate_SizesFilter() {
+        var filter = new BloomFilter(1_000, 0.01);
+
+        assertTrue(filter.getBitCount() >= 9_585);
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test
+    void constructor_WithInvalidArguments_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,62 @@
+package simple.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBlockAllocatorTest {
+
+    @Test
+    void next_WithinBlock_ReturnsConsecutiveIdsWithSingleFetch() {
+        var allocator = new IdBlockAllocator(3);
+        var fetches = new AtomicInteger();
+
+        var ids = List.of(
+                allocator.next(() -> fetches.incrementAndGet() == 1 ? 1 : 4),
+                allocator.next(() -> fetches.incrementAndGet() == 1 ? 1 : 4),
+                allocator.next(() -> fetches.incrementAndGet() == 1 ? 1 : 4),
+                allocator.next(() -> fetches.incrementAndGet() == 1 ? 1 : 4)
+        );
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void next_FromManyThreads_ReturnsUniqueIds() throws Exception {
+        var allocator = new IdBlockAllocator(50);
+        var sequence = new AtomicLong(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        ids.add(allocator.next(() -> sequence.getAndAdd(50)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(80_000, ids.size());
+        assertEquals(80_001, sequence.get());
+    }
+
+    @Test
+    void constructor_WithNonPositiveBlockSize_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new IdBlockAllocator(0));
+    }
+}
@@ -0,0 +1,63 @@
+package simple.id;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdFilterTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    IdFilter idFilter;
+
+    @Test
+    void isMissingEmployee_BeforeRebuild_ReturnsFalse() {
+        assertFalse(idFilter.isMissingEmployee(1L));
+    }
+
+    @Test
+    void rebuild_WithIdsAddedDuringScan_KeepsThemInNewFilter() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        doReturn(1L).when(row).getLong(1);
+        doReturn(1L).when(jdbcTemplate).queryForObject(anyString(), eq(Long.class));
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0).equals("SELECT id FROM employee")) {
+                idFilter.addEmployee(7L);
+            }
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        idFilter.rebuild();
+        idFilter.rebuild();
+
+        assertFalse(idFilter.isMissingEmployee(1L));
+        assertFalse(idFilter.isMissingEmployee(7L));
+        assertTrue(idFilter.isMissingEmployee(8L));
+        assertTrue(idFilter.isMissingIssue(7L));
+    }
+
+    @Test
+    void addEmployee_AfterRebuild_AddsToCurrentFilter() {
+        doReturn(0L).when(jdbcTemplate).queryForObject(anyString(), eq(Long.class));
+        idFilter.rebuild();
+
+        idFilter.addEmployee(3L);
+
+        assertFalse(idFilter.isMissingEmployee(3L));
+        assertTrue(idFilter.isMissingEmployee(4L));
+    }
+}
@@ -0,0 +1,84 @@
+package simple.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EndpointMetricsFilterTest {
+
+    @Mock
+    EndpointMetrics endpointMetrics;
+
+    @InjectMocks
+    EndpointMetricsFilter filter;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/comment/create");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void doFilter_WithSyncRequest_RecordsOnReturn() throws Exception {
+        Method method = handlerMethod();
+
+        filter.doFilter(request, response, chain(method, false));
+
+        verify(endpointMetrics, times(1)).record(eq(method), anyLong(), eq(200), eq(false));
+    }
+
+    @Test
+    void doFilter_WithAsyncRequest_RecordsOnCompletion() throws Exception {
+        Method method = handlerMethod();
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, response, chain(method, true));
+
+        verifyNoInteractions(endpointMetrics);
+        response.setStatus(201);
+        request.getAsyncContext().complete();
+        verify(endpointMetrics, times(1)).record(eq(method), anyLong(), eq(201), eq(false));
+    }
+
+    @Test
+    void doFilter_WithAsyncError_RecordsFailure() throws Exception {
+        Method method = handlerMethod();
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, response, chain(method, true));
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+        asyncContext.complete();
+        verify(endpointMetrics, times(1)).record(eq(method), anyLong(), eq(200), eq(true));
+    }
+
+    private static FilterChain chain(Method method, boolean async) {
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod("text", method));
+            if (async) {
+                request.startAsync();
+            }
+        };
+    }
+
+    private static Method handlerMethod() throws NoSuchMethodException {
+        return String.class.getMethod("length");
+    }
+}
@@ -0,0 +1,67 @@
+package simple.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointMetricsTest {
+
+    private final EndpointMetrics metrics = new EndpointMetrics();
+
+    @Test
+    void getSnapshot_WithRecordedRequests_ReturnsPercentilesAndCounters() throws Exception {
+        Method method = String.class.getMethod("length");
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(method, TimeUnit.MILLISECONDS.toNanos(i), 200, false);
+        }
+        metrics.record(method, TimeUnit.MILLISECONDS.toNanos(1), 404, false);
+        metrics.record(method, TimeUnit.MILLISECONDS.toNanos(1), 200, true);
+
+        var endpoint = metrics.getSnapshot().get("String.length");
+
+        assertNotNull(endpoint);
+        assertEquals(102L, endpoint.get("count"));
+        assertEquals(1L, endpoint.get("errors"));
+        assertEquals(1L, endpoint.get("clientErrors"));
+        assertEquals(50.0, (double) endpoint.get("p50"), 1.0);
+        assertEquals(100.0, (double) endpoint.get("max"), 0.1);
+    }
+
+    @Test
+    void getSnapshot_CalledTwice_KeepsCumulativeHistogram() throws Exception {
+        Method method = String.class.getMethod("length");
+        metrics.record(method, TimeUnit.MILLISECONDS.toNanos(5), 200, false);
+        metrics.getSnapshot();
+        metrics.record(method, TimeUnit.MILLISECONDS.toNanos(7), 200, false);
+
+        var endpoint = metrics.getSnapshot().get("String.length");
+
+        assertEquals(2L, endpoint.get("count"));
+        assertEquals(7.0, (double) endpoint.get("max"), 0.01);
+    }
+
+    @Test
+    void record_WithLatencyAboveRange_ClampsValue() throws Exception {
+        Method method = String.class.getMethod("length");
+
+        metrics.record(method, TimeUnit.HOURS.toNanos(1), 200, false);
+
+        assertEquals(1L, metrics.getSnapshot().get("String.length").get("count"));
+    }
+
+    @Test
+    void getPrometheusText_WithRecordedRequests_ReturnsSummaryAndCounters() throws Exception {
+        Method method = String.class.getMethod("length");
+        metrics.record(method, TimeUnit.MILLISECONDS.toNanos(2), 500, false);
+
+        String text = metrics.getPrometheusText();
+
+        assertTrue(text.contains("# TYPE app_endpoint_latency_seconds summary"));
+        assertTrue(text.contains("app_endpoint_latency_seconds{endpoint=\"String.length\",quantile=\"0.99\"}"));
+        assertTrue(text.contains("app_endpoint_latency_seconds_count{endpoint=\"String.length\"} 1"));
+        assertTrue(text.contains("app_endpoint_errors_total{endpoint=\"String.length\"} 1"));
+    }
+}
@@ -0,0 +1,116 @@
+package simple.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanTest {
+
+    private static final int EMPLOYEES = 20;
+    private static final int ISSUES_PER_EMPLOYEE = 5;
+    private static final int COMMENTS_PER_ISSUE = 3;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EmployeeRepository employeeRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        for (int e = 0; e < EMPLOYEES; e++) {
+            Employee employee = entityManager.persist(Employee.builder()
+                    .name("Ivan")
+                    .lastName("Ivanov" + e)
+                    .build());
+            for (int i = 0; i < ISSUES_PER_EMPLOYEE; i++) {
+                Issue issue = Issue.builder()
+                        .title("Title")
+                        .description("Description")
+                        .build();
+                employee.addIssue(issue);
+                for (int c = 0; c < COMMENTS_PER_ISSUE; c++) {
+                    issue.addComment(Comment.builder().text("Text").build());
+                }
+                entityManager.persist(issue);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void employeeList_WithNestedIssuesAndComments_UsesThreeStatements() throws Exception {
+        String json = objectMapper.writeValueAsString(employeeRepository.findAll());
+
+        assertTrue(json.contains("Ivanov19"));
+        // employees, issues of all employees, comments of all issues
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void issueList_WithEmployeesAndComments_UsesTwoStatements() throws Exception {
+        List<Issue> issues = issueRepository.findAll();
+        objectMapper.writeValueAsString(issues);
+
+        assertEquals(EMPLOYEES * ISSUES_PER_EMPLOYEE, issues.size());
+        assertNotNull(issues.get(0).getEmployee().getName());
+        // issues joined with employees, comments of all issues
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void searchResult_LoadedById_UsesTwoStatements() throws Exception {
+        List<Long> ids = entityManager.getEntityManager()
+                .createQuery("select i.id from Issue i", Long.class)
+                .getResultList()
+                .stream()
+                .limit(50)
+                .collect(Collectors.toList());
+        statistics.clear();
+
+        objectMapper.writeValueAsString(issueRepository.findAllById(ids));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void issueComments_WithIssueAndEmployee_UsesOneStatement() throws Exception {
+        Issue issue = issueRepository.findAll().get(0);
+        entityManager.clear();
+        statistics.clear();
+
+        objectMapper.writeValueAsString(commentRepository.findByIssue(issue));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,92 @@
+package simple.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import simple.dto.VersionStamp;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class VersionStampTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EmployeeRepository employeeRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    private Employee employee;
+    private Issue issue;
+
+    @BeforeEach
+    void setUp() {
+        employee = entityManager.persist(Employee.builder().name("Ivan").lastName("Ivanov").build());
+        issue = Issue.builder().title("Title").description("Description").build();
+        employee.addIssue(issue);
+        issue.addComment(Comment.builder().text("First").build());
+        issue.addComment(Comment.builder().text("Second").build());
+        entityManager.persist(issue);
+        entityManager.flush();
+    }
+
+    private String commentStamp() {
+        entityManager.flush();
+        return commentRepository.findVersionStampByIssueId(issue.getId()).toString();
+    }
+
+    @Test
+    void findVersionStampByIssueId_WithChangedComments_ReturnsNewStamp() {
+        String created = commentStamp();
+
+        issue.getComments().get(0).setLikes(5);
+        String updated = commentStamp();
+
+        issue.getComments().remove(1);
+        String deleted = commentStamp();
+
+        issue.addComment(Comment.builder().text("Third").build());
+        String replaced = commentStamp();
+
+        assertNotEquals(created, updated);
+        assertNotEquals(updated, deleted);
+        assertNotEquals(deleted, replaced);
+        assertNotEquals(created, replaced);
+    }
+
+    @Test
+    void findVersionStampById_WithUnchangedIssue_ReturnsSameStamp() {
+        assertEquals(issueRepository.findVersionStampById(issue.getId()).toString(),
+                issueRepository.findVersionStampById(issue.getId()).toString());
+        assertEquals(1, employeeRepository.findVersionStampById(employee.getId()).getCount());
+        assertEquals(1, issueRepository.findVersionStampByEmployeeId(employee.getId()).getCount());
+        assertEquals(2, commentRepository.findVersionStampByEmployeeId(employee.getId()).getCount());
+    }
+
+    @Test
+    void of_WithDeletedCommentReplacedByLowerId_ReturnsNewStamp() {
+        var before = List.of(Comment.builder().id(3L).version(0L).build(), Comment.builder().id(8L).version(0L).build());
+        var after = List.of(Comment.builder().id(2L).version(0L).build(), Comment.builder().id(8L).version(0L).build());
+
+        assertNotEquals(VersionStamp.of(before, Comment::getId, Comment::getVersion).toString(),
+                VersionStamp.of(after, Comment::getId, Comment::getVersion).toString());
+    }
+
+    @Test
+    void findVersionStampById_WithMissingEmployee_ReturnsEmptyStamp() {
+        assertEquals(0, employeeRepository.findVersionStampById(-1L).getCount());
+    }
+}
@@ -0,0 +1,123 @@
+package simple.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import simple.entity.Comment;
+import simple.entity.Employee;
+import simple.entity.Issue;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The create paths attach a new child to a detached parent, as served by the entity cache,
+ * and save only the child.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class WritePathTest {
+
+    private static final int EXISTING_CHILDREN = 20;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EmployeeRepository employeeRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    private Statistics statistics;
+    private Employee employee;
+    private Issue issue;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        employee = entityManager.persist(Employee.builder().name("Ivan").lastName("Ivanov").build());
+        for (int i = 0; i < EXISTING_CHILDREN; i++) {
+            issue = Issue.builder().title("Title").description("Description").build();
+            employee.addIssue(issue);
+            issue.addComment(Comment.builder().text("Text").build());
+            entityManager.persist(issue);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        employee = employeeRepository.findById(employee.getId()).orElseThrow();
+        issue = issueRepository.findById(issue.getId()).orElseThrow();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void saveIssue_WithDetachedEmployee_InsertsOnlyTheIssue() {
+        Issue newIssue = Issue.builder().title("New").description("Description").build();
+        newIssue.setEmployee(employee);
+
+        issueRepository.save(newIssue);
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertEquals(0, statistics.getCollectionUpdateCount());
+        assertEquals(employee.getId(), issueRepository.findById(newIssue.getId()).orElseThrow().getEmployee().getId());
+    }
+
+    @Test
+    void saveComment_WithDetachedIssue_InsertsOnlyTheComment() {
+        Comment newComment = Comment.builder().text("New").build();
+        newComment.setIssue(issue);
+
+        commentRepository.save(newComment);
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertEquals(0, statistics.getCollectionUpdateCount());
+    }
+
+    @Test
+    void saveIssue_WithStaleCommentSnapshot_KeepsNewerComments() {
+        Issue snapshot = issue.toBuilder()
+                .comments(new ArrayList<>(commentRepository.findByIssue(issue)))
+                .build();
+        entityManager.clear();
+        Comment newComment = Comment.builder().text("New").build();
+        newComment.setIssue(issue);
+        commentRepository.save(newComment);
+        entityManager.flush();
+        entityManager.clear();
+
+        issueRepository.save(snapshot);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, commentRepository.findByIssue(issue).size());
+        assertTrue(commentRepository.existsById(newComment.getId()));
+    }
+
+    @Test
+    void employeeIssues_WithIssuesOwningTheRelation_LoadsEveryIssue() {
+        Employee loaded = employeeRepository.findById(employee.getId()).orElseThrow();
+
+        assertEquals(EXISTING_CHILDREN, loaded.getIssues().size());
+    }
+}
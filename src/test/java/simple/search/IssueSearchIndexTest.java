@@ -0,0 +1,111 @@
+package simple.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import simple.entity.Employee;
+import simple.entity.Issue;
+import simple.repository.EmployeeRepository;
+import simple.repository.IssueRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IssueSearchIndexTest {
+
+    @Mock
+    IssueRepository issueRepository;
+
+    @Mock
+    EmployeeRepository employeeRepository;
+
+    @InjectMocks
+    IssueSearchIndex index;
+
+    private final Employee ivan = Employee.builder()
+            .id(1L)
+            .name("Ivan")
+            .lastName("Ivanov")
+            .build();
+
+    private final Employee petr = Employee.builder()
+            .id(2L)
+            .name("Petr")
+            .lastName("Petrov")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        doReturn(List.of(ivan, petr)).when(employeeRepository).findAll();
+        doReturn(List.of(
+                Issue.builder().id(1L).title("Login failure").description("User cannot log in").employee(ivan).build(),
+                Issue.builder().id(2L).title("Topic").description("Description").employee(petr).build(),
+                Issue.builder().id(3L).title("Crash on save").employee(petr).build()
+        )).when(issueRepository).findAll();
+
+        index.rebuild();
+    }
+
+    @Test
+    void rebuild_MarksIndexReady() {
+        assertTrue(index.isReady());
+    }
+
+    @Test
+    void search_WithTokenFragment_ReturnsMatchingIssues() {
+        assertEquals(List.of(1L), index.search("OGIN"));
+        assertEquals(List.of(2L), index.search("escri"));
+    }
+
+    @Test
+    void search_WithQueryAcrossSeparators_ReturnsMatchingIssues() {
+        assertEquals(List.of(1L), index.search("ogin fai"));
+        assertEquals(List.of(3L), index.search("on save"));
+    }
+
+    @Test
+    void search_WithEmployeeQuery_ReturnsEmployeeIssues() {
+        assertEquals(List.of(2L, 3L), index.search("petro"));
+    }
+
+    @Test
+    void search_WithQueryShorterThanTrigram_ReturnsMatchingIssues() {
+        assertEquals(List.of(1L), index.search("Iv"));
+        assertEquals(List.of(3L), index.search("sa"));
+    }
+
+    @Test
+    void search_WithNoMatch_ReturnsEmptyList() {
+        assertTrue(index.search("text").isEmpty());
+    }
+
+    @Test
+    void indexIssue_WithEditedTitle_ReplacesOldText() {
+        index.indexIssue(Issue.builder().id(2L).title("Renamed").description("Description").employee(petr).build());
+
+        assertTrue(index.search("topic").isEmpty());
+        assertEquals(List.of(2L), index.search("renamed"));
+    }
+
+    @Test
+    void indexEmployee_WithEditedName_UpdatesEmployeeIssues() {
+        index.indexEmployee(Employee.builder().id(1L).name("Oleg").lastName("Sidorov").build());
+
+        assertTrue(index.search("ivanov").isEmpty());
+        assertEquals(List.of(1L), index.search("sidor"));
+    }
+
+    @Test
+    void removeIssue_ExcludesIssueFromResults() {
+        index.removeIssue(3L);
+
+        assertEquals(List.of(2L), index.search("petr"));
+        assertTrue(index.search("crash").isEmpty());
+    }
+}
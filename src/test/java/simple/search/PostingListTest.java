@@ -0,0 +1,60 @@
+package simple.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void add_WithAscendingIds_StoresDeltaCompressedIds() {
+        var list = new PostingList();
+        for (long id = 1; id <= 10_000; id++) {
+            list.add(id);
+        }
+
+        assertEquals(10_000, list.size());
+        assertEquals(10_000, list.toArray().length);
+        assertTrue(list.sizeInBytes() < 10_000L * 2);
+    }
+
+    @Test
+    void add_WithOutOfOrderAndDuplicateIds_ReturnsSortedDistinctIds() {
+        var list = new PostingList();
+        for (long id : new long[]{5, 10, 3, 10, 7, 3, 200, 1}) {
+            list.add(id);
+        }
+
+        assertArrayEquals(new long[]{1, 3, 5, 7, 10, 200}, list.toArray());
+    }
+
+    @Test
+    void add_WithManyOutOfOrderIds_CompactsIntoSortedIds() {
+        var list = new PostingList();
+        list.add(1_000);
+        for (long id = 999; id >= 1; id--) {
+            list.add(id);
+        }
+
+        var ids = list.toArray();
+        assertEquals(1_000, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i + 1, ids[i]);
+        }
+    }
+
+    @Test
+    void retainAll_KeepsOnlyCandidatesPresentInList() {
+        var list = new PostingList();
+        for (long id : new long[]{2, 4, 6, 8}) {
+            list.add(id);
+        }
+        long[] candidates = {1, 2, 3, 6, 9};
+
+        var size = list.retainAll(candidates, candidates.length);
+
+        assertEquals(2, size);
+        assertEquals(2, candidates[0]);
+        assertEquals(6, candidates[1]);
+    }
+}
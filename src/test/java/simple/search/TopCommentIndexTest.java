@@ -0,0 +1,97 @@
+package simple.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import simple.entity.Comment;
+import simple.entity.Issue;
+import simple.repository.CommentRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopCommentIndexTest {
+
+    @Mock
+    CommentRepository commentRepository;
+
+    @InjectMocks
+    TopCommentIndex index;
+
+    private final Issue first = Issue.builder().id(1L).title("First").build();
+    private final Issue second = Issue.builder().id(2L).title("Second").build();
+
+    @BeforeEach
+    void setUp() {
+        doReturn(List.of(
+                Comment.builder().id(1L).text("One").likes(5).issue(first).build(),
+                Comment.builder().id(2L).text("Two").likes(9).issue(first).build(),
+                Comment.builder().id(3L).text("Three").likes(5).issue(second).build(),
+                Comment.builder().id(4L).text("Four").likes(0).issue(second).build()
+        )).when(commentRepository).findAll();
+
+        index.rebuild();
+    }
+
+    private static List<Long> ids(List<Comment> comments) {
+        return comments.stream().map(Comment::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void top_WithEqualLikes_OrdersByLikesThenId() {
+        assertTrue(index.isReady());
+        assertEquals(List.of(2L, 1L, 3L, 4L), ids(index.top(10)));
+        assertEquals(List.of(2L, 1L), ids(index.top(2)));
+        assertEquals(9, index.top(1).get(0).getLikes());
+        assertEquals("Two", index.top(1).get(0).getText());
+    }
+
+    @Test
+    void top_WithIssue_ReturnsOnlyItsComments() {
+        assertEquals(List.of(3L, 4L), ids(index.top(2L, 10)));
+        assertNull(index.top(3L, 10));
+    }
+
+    @Test
+    void addLikes_WithFlushedLikes_MovesComment() {
+        index.addLikes(4L, 7);
+        index.addLikes(2L, -20);
+
+        assertEquals(List.of(4L, 1L, 3L, 2L), ids(index.top(10)));
+        assertEquals(List.of(4L, 3L), ids(index.top(2L, 10)));
+        assertEquals(0, index.top(10).get(3).getLikes());
+    }
+
+    @Test
+    void indexComment_WithNewComment_RanksIt() {
+        index.indexComment(Comment.builder().id(5L).text("Five").likes(6).issue(second).build());
+
+        assertEquals(List.of(2L, 5L), ids(index.top(2)));
+        assertEquals(List.of(5L, 3L, 4L), ids(index.top(2L, 10)));
+    }
+
+    @Test
+    void removeComment_WithLastCommentOfIssue_RemovesIssueRanking() {
+        index.removeComment(3L);
+        index.removeComment(4L);
+
+        assertEquals(List.of(2L, 1L), ids(index.top(10)));
+        assertNull(index.top(2L, 10));
+    }
+
+    @Test
+    void removeIssue_RemovesItsComments() {
+        index.removeIssue(1L);
+        index.addLikes(2L, 100);
+
+        assertEquals(List.of(3L, 4L), ids(index.top(10)));
+        assertNull(index.top(1L, 10));
+    }
+}
@@ -0,0 +1,134 @@
+package simple.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import simple.change.ChangeLog;
+import simple.dto.ChangeItem;
+import simple.dto.ChangePage;
+import simple.entity.Change;
+import simple.entity.Issue;
+import simple.repository.ChangeRepository;
+import simple.repository.CommentRepository;
+import simple.repository.EmployeeRepository;
+import simple.repository.IssueRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeServiceTest {
+
+    @Mock
+    ChangeRepository changeRepository;
+
+    @InjectMocks
+    ChangeService changeService;
+
+    @Mock
+    ChangeLog changeLog;
+
+    @Mock
+    EmployeeRepository employeeRepository;
+
+    @Mock
+    IssueRepository issueRepository;
+
+    @Mock
+    CommentRepository commentRepository;
+
+    private static Change change(long revision, Change.Type type, long id, boolean deleted) {
+        return Change.builder().revision(revision).type(type).entityId(id).deleted(deleted).build();
+    }
+
+    @Test
+    void getChanges_WithRepeatedChanges_ReturnsLatestChangeOfEveryEntity() {
+        var issue = Issue.builder().id(1L).title("Title").build();
+
+        doReturn(14L).when(changeLog).getCommittedRevision();
+        doReturn(List.of(
+                change(11, Change.Type.ISSUE, 1L, false),
+                change(12, Change.Type.ISSUE, 2L, false),
+                change(13, Change.Type.ISSUE, 1L, false),
+                change(14, Change.Type.ISSUE, 2L, true)
+        )).when(changeRepository).findByRevisionBetweenOrderByRevisionAsc(11L, 14L, PageRequest.of(0, 101));
+        doReturn(List.of(issue)).when(issueRepository).findAllById(List.of(1L));
+
+        var responseEntity = changeService.getChanges(10L, null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var page = (ChangePage) responseEntity.getBody();
+        assertEquals(14, page.getRevision());
+        assertFalse(page.isHasMore());
+        assertEquals(2, page.getChanges().size());
+        ChangeItem updated = page.getChanges().get(0);
+        assertEquals(13, updated.getRevision());
+        assertEquals(issue, updated.getData());
+        ChangeItem deleted = page.getChanges().get(1);
+        assertTrue(deleted.isDeleted());
+        assertNull(deleted.getData());
+        verifyNoInteractions(employeeRepository, commentRepository);
+    }
+
+    @Test
+    void getChanges_WithMoreChangesThanLimit_ReturnsFirstPage() {
+        doReturn(2L).when(changeLog).getCommittedRevision();
+        doReturn(List.of(
+                change(1, Change.Type.COMMENT, 1L, true),
+                change(2, Change.Type.COMMENT, 2L, true)
+        )).when(changeRepository).findByRevisionBetweenOrderByRevisionAsc(1L, 2L, PageRequest.of(0, 2));
+
+        var page = (ChangePage) changeService.getChanges(null, 1).getBody();
+
+        assertEquals(1, page.getRevision());
+        assertTrue(page.isHasMore());
+        assertEquals(1, page.getChanges().size());
+    }
+
+    @Test
+    void getChanges_WithCommittedRevision_ReadsUpToIt() {
+        doReturn(12L).when(changeLog).getCommittedRevision();
+        doReturn(List.of(
+                change(11, Change.Type.COMMENT, 1L, true),
+                change(12, Change.Type.COMMENT, 2L, true)
+        )).when(changeRepository).findByRevisionBetweenOrderByRevisionAsc(11L, 12L, PageRequest.of(0, 101));
+
+        var page = (ChangePage) changeService.getChanges(10L, null).getBody();
+
+        assertEquals(12, page.getRevision());
+        assertFalse(page.isHasMore());
+        assertEquals(2, page.getChanges().size());
+    }
+
+    @Test
+    void getChanges_WithNothingCommittedSinceRevision_ReturnsEmptyPage() {
+        doReturn(12L).when(changeLog).getCommittedRevision();
+
+        var page = (ChangePage) changeService.getChanges(12L, null).getBody();
+
+        assertEquals(12, page.getRevision());
+        assertTrue(page.getChanges().isEmpty());
+        verifyNoInteractions(changeRepository);
+    }
+
+    @Test
+    void getChanges_WithRevisionBeforePurgedTombstones_ReturnsGone() {
+        doReturn(20L).when(changeLog).getPurgedRevision();
+
+        var responseEntity = changeService.getChanges(5L, null);
+
+        assertEquals(HttpStatus.GONE, responseEntity.getStatusCode());
+        verifyNoInteractions(changeRepository);
+    }
+
+    @Test
+    void getChanges_WithInvalidLimit_ReturnsBadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST, changeService.getChanges(0L, 0).getStatusCode());
+    }
+}
@@ -4,17 +4,31 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.counter.AggregateCounters;
+import simple.counter.CommentLikeCounter;
+import simple.counter.UniqueLikerCounter;
+import simple.dto.BulkItemResult;
+import simple.dto.CommentBulkItem;
+import simple.dto.MultiGetResult;
 import simple.entity.Comment;
 import simple.entity.Issue;
+import simple.event.IssueEventHub;
+import simple.graph.GraphFetcher;
 import simple.repository.CommentRepository;
 import simple.repository.IssueRepository;
+import simple.search.TopCommentIndex;
+import simple.stream.EntityPublisher;
+import simple.stream.EntityStreamer;
+import simple.write.CommentWriteQueue;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +48,39 @@ class CommentServiceTest {
     @Mock
     IssueRepository issueRepository;
 
+    @Mock
+    EntityStreamer entityStreamer;
+
+    @Mock
+    EntityPublisher entityPublisher;
+
+    @Mock
+    CommentLikeCounter commentLikeCounter;
+
+    @Mock
+    UniqueLikerCounter uniqueLikerCounter;
+
+    @Mock
+    ChangeLog changeLog;
+
+    @Mock
+    AggregateCounters aggregateCounters;
+
+    @Mock
+    TopCommentIndex topCommentIndex;
+
+    @Mock
+    IssueEventHub issueEventHub;
+
+    @Mock
+    GraphFetcher graphFetcher;
+
+    @Mock
+    CommentWriteQueue commentWriteQueue;
+
+    @Spy
+    EntityCache entityCache = new EntityCache(100, 60, TransactionOperations.withoutTransaction());
+
     @Test
     void createComment_WithValidData_ReturnsCreatedResponseEntity() {
         var issueId = 1L;
@@ -45,16 +92,97 @@ class CommentServiceTest {
 
         doReturn(issue).when(issueService).getIssueById(issueId);
         doReturn(comment).when(commentRepository).save(comment);
-        doReturn(issue).when(issueRepository).save(issue);
 
         var responseEntity = commentService.createComment(issueId, comment);
 
         assertNotNull(responseEntity);
         assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
         assertEquals(comment, responseEntity.getBody());
+        assertEquals(issue, comment.getIssue());
 
         verify(commentRepository, times(1)).save(comment);
-        verify(issueRepository, times(1)).save(issue);
+        verify(issueRepository, never()).save(any());
+    }
+
+    @Test
+    void submitComment_WithValidData_ReturnsCreatedResponseEntityAfterCommit() {
+        var comment = Comment.builder()
+                .text("Text")
+                .build();
+        var saved = Comment.builder()
+                .id(9L)
+                .text("Text")
+                .build();
+        Issue issue = new Issue();
+
+        doReturn(issue).when(issueService).getIssueById(1L);
+        doReturn(CompletableFuture.completedFuture(saved)).when(commentWriteQueue).submit(comment);
+
+        var responseEntity = commentService.submitComment(1L, comment).join();
+
+        assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+        assertEquals(saved, responseEntity.getBody());
+        assertEquals(issue, comment.getIssue());
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void submitComment_WithFullQueue_ReturnsServiceUnavailableResponseEntity() {
+        var comment = Comment.builder()
+                .text("Text")
+                .build();
+
+        doReturn(new Issue()).when(issueService).getIssueById(1L);
+        doReturn(null).when(commentWriteQueue).submit(comment);
+
+        var responseEntity = commentService.submitComment(1L, comment).join();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode());
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void submitComment_WithInvalidText_ReturnsBadRequestWithoutQueueing() {
+        doReturn(new Issue()).when(issueService).getIssueById(1L);
+
+        var responseEntity = commentService.submitComment(1L, new Comment()).join();
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(commentWriteQueue);
+    }
+
+    @Test
+    void getIssueTopComments_WithReadyIndex_DoesNotQueryComments() {
+        var comments = List.of(Comment.builder().id(2L).text("Text").likes(3).build());
+
+        doReturn(true).when(topCommentIndex).isReady();
+        doReturn(comments).when(topCommentIndex).top(1L, 5);
+
+        var responseEntity = commentService.getIssueTopComments(1L, 5);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(comments, responseEntity.getBody());
+        verifyNoInteractions(commentRepository, issueService);
+    }
+
+    @Test
+    void getIssueTopComments_WithIssueWithoutComments_ReturnsEmptyList() {
+        doReturn(true).when(topCommentIndex).isReady();
+        doReturn(null).when(topCommentIndex).top(1L, ServiceUtils.DEFAULT_TOP_SIZE);
+        doReturn(new Issue()).when(issueService).getIssueById(1L);
+
+        var responseEntity = commentService.getIssueTopComments(1L, null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(List.of(), responseEntity.getBody());
+    }
+
+    @Test
+    void getTopComments_WithInvalidLimit_ReturnsBadRequestResponseEntity() {
+        var responseEntity = commentService.getTopComments(0);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(topCommentIndex, commentRepository);
     }
 
     @Test
@@ -205,6 +333,7 @@ class CommentServiceTest {
 
         verify(commentRepository, times(1)).findById(id);
         verify(commentRepository, times(1)).deleteById(id);
+        verify(uniqueLikerCounter, times(1)).removeComment(id);
     }
 
     @Test
@@ -222,4 +351,235 @@ class CommentServiceTest {
         verify(commentRepository, times(1)).findById(id);
         verify(commentRepository, times(0)).deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createComments_WithValidAndInvalidItems_ReturnsPerItemResults() {
+        var issue = Issue.builder().id(1L).title("Title").build();
+        var items = List.of(
+                new CommentBulkItem(1L, "Text", 0),
+                new CommentBulkItem(1L, null, 0),
+                new CommentBulkItem(3L, "Text", 0)
+        );
+        var saved = Comment.builder().id(9L).text("Text").issue(issue).build();
+
+        doReturn(List.of(issue)).when(issueRepository).findAllById(Set.of(1L, 3L));
+        doReturn(List.of(saved)).when(commentRepository).saveAll(anyList());
+
+        var responseEntity = commentService.createComments(items);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var results = (List<BulkItemResult>) responseEntity.getBody();
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        assertEquals(9L, results.get(0).getId());
+        assertEquals("The 'text' field is required", results.get(1).getError());
+        assertEquals(HttpStatus.NOT_FOUND.value(), results.get(2).getStatus());
+        verify(commentRepository, times(1)).saveAll(anyList());
+        verify(issueRepository, never()).save(any());
+    }
+
+    @Test
+    void createComments_WithTooManyItems_ReturnsBadRequestResponseEntity() {
+        var items = Collections.nCopies(1001, new CommentBulkItem(1L, "Text", 0));
+
+        var responseEntity = commentService.createComments(items);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(issueRepository, commentRepository);
+    }
+
+    @Test
+    void getIssueComments_AfterCreateComment_ReloadsComments() {
+        var issueId = 1L;
+        var issue = Issue.builder()
+                .id(issueId)
+                .title("Title")
+                .build();
+        var comment = Comment.builder()
+                .text("Text")
+                .build();
+
+        doReturn(issue).when(issueService).getIssueById(issueId);
+        doReturn(List.of(), List.of(comment)).when(commentRepository).findByIssue(issue);
+        doReturn(comment).when(commentRepository).save(comment);
+
+        assertTrue(commentService.getIssueComments(issueId).getBody().isEmpty());
+        assertTrue(commentService.getIssueComments(issueId).getBody().isEmpty());
+        commentService.createComment(issueId, comment);
+
+        assertEquals(1, commentService.getIssueComments(issueId).getBody().size());
+        verify(commentRepository, times(2)).findByIssue(issue);
+    }
+
+    @Test
+    void getIssueCommentsTag_WithWriteVisibleBeforeEviction_MatchesServedBody() {
+        var issue = Issue.builder()
+                .id(1L)
+                .title("Title")
+                .build();
+        var first = Comment.builder().id(1L).version(0L).text("Text").likes(1).build();
+        var second = Comment.builder().id(2L).version(0L).text("Text").build();
+
+        doReturn(issue).when(issueService).getIssueById(1L);
+        doReturn(List.of(first), List.of(first, second)).when(commentRepository).findByIssue(issue);
+
+        var cachedBody = commentService.getIssueComments(1L).getBody();
+        var cachedTag = commentService.getIssueCommentsTag(cachedBody);
+        // the new comment is committed, the cached list is not evicted yet
+        var staleBody = commentService.getIssueComments(1L).getBody();
+        assertEquals(cachedBody, staleBody);
+        assertEquals(cachedTag, commentService.getIssueCommentsTag(staleBody));
+
+        entityCache.evictIssue(issue);
+        var freshBody = commentService.getIssueComments(1L).getBody();
+        assertEquals(2, freshBody.size());
+        assertNotEquals(cachedTag, commentService.getIssueCommentsTag(freshBody));
+
+        doReturn(2L).when(commentLikeCounter).getPendingDelta(1L);
+        doReturn(0L).when(commentLikeCounter).getPendingDelta(2L);
+        var likedBody = commentService.getIssueComments(1L).getBody();
+        assertEquals(3, likedBody.get(0).getLikes());
+        assertNotEquals(commentService.getIssueCommentsTag(freshBody), commentService.getIssueCommentsTag(likedBody));
+    }
+
+    @Test
+    void likeComment_WithTrackedComment_DoesNotLoadComment() {
+        doReturn(2L).when(commentLikeCounter).getIssueId(1L);
+        doReturn(true).when(commentLikeCounter).add(1L, 1);
+
+        var responseEntity = commentService.likeComment(1L);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void likeComment_WithLiker_AddsLikerToCommentAndIssue() {
+        doReturn(true).when(commentLikeCounter).add(1L, 1);
+        doReturn(2L).when(commentLikeCounter).getIssueId(1L);
+
+        var responseEntity = commentService.likeComment(1L, "user");
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        verify(uniqueLikerCounter, times(1)).add(1L, 2L, "user");
+    }
+
+    @Test
+    void likeComment_WithCounterDroppedByFlush_AddsLikerToIssueOfLoadedComment() {
+        var comment = Comment.builder().id(1L).text("Text").issue(Issue.builder().id(2L).build()).build();
+
+        doReturn(2L).when(commentLikeCounter).getIssueId(1L);
+        doReturn(false).when(commentLikeCounter).add(1L, 1);
+        doReturn(Optional.of(comment)).when(commentRepository).findById(1L);
+
+        var responseEntity = commentService.likeComment(1L, "user");
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        verify(commentLikeCounter, times(1)).add(comment, 1);
+        verify(uniqueLikerCounter, times(1)).add(1L, 2L, "user");
+    }
+
+    @Test
+    void getCommentLikers_WithMissingComment_ReturnsNotFoundResponseEntity() {
+        var responseEntity = commentService.getCommentLikers(1L);
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+    }
+
+    @Test
+    void unlikeComment_WithUntrackedComment_StartsTrackingComment() {
+        var comment = Comment.builder().id(1L).text("Text").likes(3).build();
+
+        doReturn(Optional.of(comment)).when(commentRepository).findById(1L);
+
+        var responseEntity = commentService.unlikeComment(1L);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        verify(commentLikeCounter, times(1)).add(comment, -1);
+    }
+
+    @Test
+    void likeComment_WithMissingComment_ReturnsNotFoundResponseEntity() {
+        doReturn(Optional.empty()).when(commentRepository).findById(1L);
+
+        var responseEntity = commentService.likeComment(1L, "user");
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+        verify(commentLikeCounter, never()).add(any(Comment.class), anyInt());
+        verifyNoInteractions(uniqueLikerCounter);
+    }
+
+    @Test
+    void getIssueComments_WithPendingLikes_ReturnsMergedLikes() {
+        var issue = Issue.builder().id(1L).title("Title").build();
+        var liked = Comment.builder().id(1L).text("Text").likes(2).build();
+        var unliked = Comment.builder().id(2L).text("Text").likes(1).build();
+
+        doReturn(issue).when(issueService).getIssueById(1L);
+        doReturn(List.of(liked, unliked)).when(commentRepository).findByIssue(issue);
+        doReturn(5L).when(commentLikeCounter).getPendingDelta(1L);
+        doReturn(-3L).when(commentLikeCounter).getPendingDelta(2L);
+
+        var comments = commentService.getIssueComments(1L).getBody();
+
+        assertNotNull(comments);
+        assertEquals(7, comments.get(0).getLikes());
+        assertEquals(0, comments.get(1).getLikes());
+        assertEquals(2, liked.getLikes());
+    }
+
+    @Test
+    void getCommentsByIssueIds_WithCachedAndMissingIssues_LoadsOnlyMissesAndMergesPendingLikes() {
+        var first = Issue.builder().id(1L).title("First").build();
+        var second = Issue.builder().id(2L).title("Second").build();
+        var firstComment = Comment.builder().id(10L).text("Text").likes(2).issue(first).build();
+        var secondComment = Comment.builder().id(20L).text("Text").likes(1).issue(second).build();
+
+        doReturn(first).when(issueService).getIssueById(1L);
+        doReturn(List.of(firstComment)).when(commentRepository).findByIssue(first);
+        doReturn(Map.of(1L, first, 2L, second)).when(issueService).getIssuesById(List.of(2L, 1L, 3L));
+        doReturn(List.of(secondComment)).when(commentRepository).findByIssueIdInOrderByIdAsc(any());
+        doReturn(0L, 5L).when(commentLikeCounter).getPendingDelta(10L);
+        doReturn(0L).when(commentLikeCounter).getPendingDelta(20L);
+
+        commentService.getIssueComments(1L);
+        var responseEntity = commentService.getCommentsByIssueIds(List.of(2L, 1L, 3L));
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = (MultiGetResult<List<Comment>>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(List.of(2L, 1L), new ArrayList<>(result.getItems().keySet()));
+        assertEquals(7, result.getItems().get(1L).get(0).getLikes());
+        assertEquals(1, result.getItems().get(2L).get(0).getLikes());
+        assertEquals(List.of(3L), result.getMissing());
+        assertEquals(2, firstComment.getLikes());
+        verify(commentRepository, times(1)).findByIssueIdInOrderByIdAsc(List.of(2L));
+    }
+
+    @Test
+    void getCommentsByIssueIds_WithIssuesWithoutComments_ReturnsEmptyLists() {
+        var issue = Issue.builder().id(1L).title("Title").build();
+
+        doReturn(Map.of(1L, issue)).when(issueService).getIssuesById(List.of(1L));
+        doReturn(List.of()).when(commentRepository).findByIssueIdInOrderByIdAsc(List.of(1L));
+
+        var result = (MultiGetResult<List<Comment>>) commentService.getCommentsByIssueIds(List.of(1L)).getBody();
+
+        assertNotNull(result);
+        assertEquals(Map.of(1L, List.of()), result.getItems());
+        assertTrue(result.getMissing().isEmpty());
+    }
+
+    @Test
+    void getCommentsByIssueIds_WithMissingIssues_DoesNotQueryComments() {
+        doReturn(Map.of()).when(issueService).getIssuesById(List.of(1L, 2L));
+
+        var result = (MultiGetResult<List<Comment>>) commentService.getCommentsByIssueIds(List.of(1L, 2L)).getBody();
+
+        assertNotNull(result);
+        assertEquals(List.of(1L, 2L), result.getMissing());
+        verifyNoInteractions(commentRepository);
+    }
+}
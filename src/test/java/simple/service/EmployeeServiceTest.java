@@ -4,12 +4,32 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.server.ResponseStatusException;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.counter.AggregateCounters;
+import simple.counter.CommentLikeCounter;
+import simple.dto.BulkItemResult;
+import simple.dto.KeysetPage;
+import simple.dto.MultiGetResult;
+import simple.dto.VersionStamp;
+import simple.entity.Comment;
 import simple.entity.Employee;
 import simple.entity.Issue;
+import simple.graph.FieldSelection;
+import simple.graph.GraphFetcher;
+import simple.graph.GraphType;
+import simple.id.IdFilter;
+import simple.repository.CommentRepository;
 import simple.repository.EmployeeRepository;
+import simple.repository.IssueRepository;
+import simple.search.IssueSearchIndex;
+import simple.stream.EntityStreamer;
 
 import java.util.*;
 
@@ -25,6 +45,67 @@ class EmployeeServiceTest {
     @InjectMocks
     EmployeeService service;
 
+    @Mock
+    IssueRepository issueRepository;
+
+    @Mock
+    CommentRepository commentRepository;
+
+    @Mock
+    IssueSearchIndex issueSearchIndex;
+
+    @Mock
+    EntityStreamer entityStreamer;
+
+    @Mock
+    ChangeLog changeLog;
+
+    @Mock
+    AggregateCounters aggregateCounters;
+
+    @Mock
+    IdFilter idFilter;
+
+    @Mock
+    GraphFetcher graphFetcher;
+
+    @Mock
+    CommentLikeCounter commentLikeCounter;
+
+    @Spy
+    EntityCache entityCache = new EntityCache(100, 60, TransactionOperations.withoutTransaction());
+
+    @Test
+    void getEmployeeTag_WithExistingEmployee_ReturnsTagOfEmployeeIssuesAndComments() {
+        doReturn(new VersionStamp(1L, 2L, 1L, 1L)).when(employeeRepository).findVersionStampById(1L);
+        doReturn(new VersionStamp(3L, 4L, 15L, 7L)).when(issueRepository).findVersionStampByEmployeeId(1L);
+        doReturn(new VersionStamp(0L, null, null, null)).when(commentRepository).findVersionStampByEmployeeId(1L);
+
+        assertEquals("1.2.1.1-3.4.15.7-0.0.0.0", service.getEmployeeTag(1L));
+        verify(employeeRepository, never()).findById(any());
+    }
+
+    @Test
+    void getEmployeeProjectionTag_WithPendingLikes_ChangesTag() {
+        doReturn(new VersionStamp(1L, 2L, 1L, 1L)).when(employeeRepository).findVersionStampById(1L);
+        doReturn(new VersionStamp(3L, 4L, 15L, 7L)).when(issueRepository).findVersionStampByEmployeeId(1L);
+        doReturn(new VersionStamp(0L, null, null, null)).when(commentRepository).findVersionStampByEmployeeId(1L);
+        doReturn(0L, 7L).when(commentLikeCounter).getEmployeePendingLikesHash(1L);
+
+        assertEquals("1.2.1.1-3.4.15.7-0.0.0.0", service.getEmployeeProjectionTag(1L));
+        assertEquals("1.2.1.1-3.4.15.7-0.0.0.0-7", service.getEmployeeProjectionTag(1L));
+    }
+
+    @Test
+    void getEmployeeTag_WithMissingEmployee_ThrowsNotFound() {
+        doReturn(new VersionStamp(0L, null, null, null)).when(employeeRepository).findVersionStampById(1L);
+
+        var exception = assertThrows(ResponseStatusException.class, () -> service.getEmployeeTag(1L));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+        verifyNoInteractions(issueRepository, commentRepository);
+    }
+
     @Test
     void getEmployeeList_ReturnsValidResponseEntity() {
         var employees = List.of(
@@ -191,6 +272,24 @@ class EmployeeServiceTest {
         assertEquals(employee, result);
     }
 
+    @Test
+    void getEmployeeTag_WithServedEmployee_ReturnsTagOfEmployeeIssuesAndComments() {
+        var issue = Issue.builder()
+                .id(3L)
+                .version(2L)
+                .comments(List.of(Comment.builder().id(5L).version(1L).build(), Comment.builder().id(4L).version(0L).build()))
+                .build();
+        var employee = Employee.builder()
+                .id(1L)
+                .version(2L)
+                .name("Ivan")
+                .issues(List.of(issue, Issue.builder().id(2L).version(0L).build()))
+                .build();
+
+        assertEquals("1.2.1.1-2.2.5.3-2.1.9.5", service.getEmployeeTag(employee));
+        verifyNoInteractions(employeeRepository, issueRepository, commentRepository);
+    }
+
     @Test
     void getEmployeeById_NotExistingEmployee_ThrowsResponseStatusExceptionWithNotFoundStatus() {
         var id = 1L;
@@ -205,6 +304,19 @@ class EmployeeServiceTest {
         }
     }
 
+    @Test
+    void getEmployeeById_WithFilteredOutId_ThrowsNotFoundWithoutQuery() {
+        var id = 1L;
+
+        doReturn(true).when(idFilter).isMissingEmployee(id);
+
+        var exception = assertThrows(ResponseStatusException.class, () -> service.getEmployeeById(id));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+        assertEquals(0, exception.getStackTrace().length);
+        verifyNoInteractions(employeeRepository);
+    }
+
     @Test
     void editEmployee_WithValidName_ReturnsOkResponseEntity() {
         var id = 1L;
@@ -400,4 +512,216 @@ class EmployeeServiceTest {
         verify(employeeRepository, times(1)).findById(id);
         verify(employeeRepository, never()).deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getEmployeePage_WithMoreRows_ReturnsPageWithNextCursor() {
+        var rows = List.of(
+                Employee.builder().id(11L).name("Ivan").build(),
+                Employee.builder().id(12L).name("Ivan").build(),
+                Employee.builder().id(13L).name("Ivan").build()
+        );
+
+        doReturn(rows).when(employeeRepository).findByIdGreaterThanOrderByIdAsc(10L, PageRequest.of(0, 3));
+
+        var responseEntity = service.getEmployeePage(10L, 2);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var page = (KeysetPage<Employee>) responseEntity.getBody();
+        assertNotNull(page);
+        assertEquals(rows.subList(0, 2), page.getItems());
+        assertEquals(12L, page.getNext());
+    }
+
+    @Test
+    void getEmployeePage_WithLastRows_ReturnsPageWithoutNextCursor() {
+        var rows = List.of(
+                Employee.builder().id(1L).name("Ivan").build()
+        );
+
+        doReturn(rows).when(employeeRepository).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 101));
+
+        var responseEntity = service.getEmployeePage(null, null);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var page = (KeysetPage<Employee>) responseEntity.getBody();
+        assertNotNull(page);
+        assertEquals(rows, page.getItems());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void getEmployeePage_WithInvalidLimit_ReturnsBadRequestResponseEntity() {
+        var responseEntity = service.getEmployeePage(null, 1001);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+
+        var errorResponse = (Map<String, String>) responseEntity.getBody();
+        assertNotNull(errorResponse);
+        assertEquals("The 'limit' param should be between 1 and 1000", errorResponse.get("error"));
+        verifyNoInteractions(employeeRepository);
+    }
+
+    @Test
+    void createEmployees_WithValidAndInvalidItems_ReturnsPerItemResults() {
+        var valid = Employee.builder().name("Ivan").lastName("Ivanov").build();
+        var invalid = Employee.builder().name("Petr").build();
+        var saved = Employee.builder().id(5L).name("Ivan").lastName("Ivanov").build();
+
+        doReturn(List.of(saved)).when(employeeRepository).saveAll(List.of(valid));
+
+        var responseEntity = service.createEmployees(List.of(valid, invalid));
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var results = (List<BulkItemResult>) responseEntity.getBody();
+        assertNotNull(results);
+        assertEquals(2, results.size());
+        assertEquals(HttpStatus.CREATED.value(), results.get(0).getStatus());
+        assertEquals(5L, results.get(0).getId());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(1).getStatus());
+        assertEquals("The 'name' and 'lastName' fields is required", results.get(1).getError());
+        verify(employeeRepository, times(1)).saveAll(List.of(valid));
+        verify(issueSearchIndex, times(1)).indexEmployee(saved);
+    }
+
+    @Test
+    void createEmployees_WithEmptyList_ReturnsBadRequestResponseEntity() {
+        var responseEntity = service.createEmployees(List.of());
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(employeeRepository);
+    }
+
+    @Test
+    void getEmployeeById_CalledTwice_LoadsEmployeeOnce() {
+        var id = 1L;
+        var employee = Employee.builder()
+                .id(id)
+                .name("Ivan")
+                .lastName("Ivanov")
+                .build();
+
+        doReturn(Optional.of(employee)).when(employeeRepository).findById(id);
+
+        var first = service.getEmployeeById(id);
+        var second = service.getEmployeeById(id);
+
+        assertSame(employee, first);
+        assertNotSame(employee, second);
+        assertEquals("Ivanov", second.getLastName());
+        verify(employeeRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void editEmployee_WithCachedEmployee_EvictsCachedEmployee() {
+        var id = 1L;
+        var existingEmployee = Employee.builder()
+                .id(id)
+                .name("Ivan")
+                .lastName("Ivanov")
+                .build();
+        Map<String, Object> employeeMap = new HashMap<>();
+        employeeMap.put(Employee.NAME_FIELD, "Petr");
+        employeeMap.put(Employee.LAST_NAME_FIELD, "Petrov");
+
+        doReturn(Optional.of(existingEmployee)).when(employeeRepository).findById(id);
+        doReturn(existingEmployee).when(employeeRepository).save(existingEmployee);
+
+        service.getEmployeeById(id);
+        service.editEmployee(employeeMap, id);
+        var result = service.getEmployeeById(id);
+
+        assertEquals("Petr", result.getName());
+        verify(employeeRepository, times(3)).findById(id);
+        verify(entityCache, times(1)).evictEmployee(id);
+    }
+
+    @Test
+    void getEmployeeGraph_WithFoundAndMissingIds_ReturnsSelectedFields() {
+        Map<String, Object> node = Map.of(Employee.NAME_FIELD, "Name");
+        doReturn(Map.of(1L, node)).when(graphFetcher).findByIds(eq(GraphType.EMPLOYEE), eq(List.of(1L, 2L)), any(FieldSelection.class));
+
+        var responseEntity = employeeService.getEmployeeGraph(List.of(1L, 2L), "name");
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = (MultiGetResult<Map<String, Object>>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(Map.of(1L, node), result.getItems());
+        assertEquals(List.of(2L), result.getMissing());
+    }
+
+    @Test
+    void getEmployeeGraph_WithMalformedFields_ReturnsBadRequestResponseEntity() {
+        var responseEntity = employeeService.getEmployeeGraph(List.of(1L), "name,issues(title");
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(graphFetcher);
+    }
+
+    @Test
+    void getEmployeesByIds_WithCachedAndMissingIds_LoadsOnlyMisses() {
+        var first = Employee.builder().id(1L).name("Ivan").build();
+        var second = Employee.builder().id(2L).name("Petr").build();
+
+        doReturn(Optional.of(first)).when(employeeRepository).findById(1L);
+        doReturn(List.of(second)).when(employeeRepository).findAllById(any());
+
+        service.getEmployeeById(1L);
+        var responseEntity = service.getEmployeesByIds(List.of(2L, 1L, 3L, 2L));
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = (MultiGetResult<Employee>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(List.of(2L, 1L), new ArrayList<>(result.getItems().keySet()));
+        assertEquals("Ivan", result.getItems().get(1L).getName());
+        assertEquals(List.of(3L), result.getMissing());
+        verify(employeeRepository, times(1)).findAllById(List.of(2L, 3L));
+    }
+
+    @Test
+    void getEmployeesByIds_WithUncachedIds_LoadsThemInOneQuery() {
+        var first = Employee.builder().id(1L).name("Ivan").build();
+        var second = Employee.builder().id(2L).name("Petr").build();
+
+        doReturn(List.of(first, second)).when(employeeRepository).findAllById(any());
+
+        var responseEntity = service.getEmployeesByIds(List.of(1L, 2L));
+
+        var result = (MultiGetResult<Employee>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(Set.of(1L, 2L), result.getItems().keySet());
+        assertTrue(result.getMissing().isEmpty());
+        verify(employeeRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void getEmployeesByIds_WithFilteredOutIds_QueriesOnlyCandidates() {
+        var first = Employee.builder().id(1L).name("Ivan").build();
+
+        doAnswer(invocation -> invocation.getArgument(0).equals(3L)).when(idFilter).isMissingEmployee(any());
+        doReturn(List.of(first)).when(employeeRepository).findAllById(List.of(1L));
+
+        var responseEntity = service.getEmployeesByIds(List.of(1L, 3L));
+
+        var result = (MultiGetResult<Employee>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(Set.of(1L), result.getItems().keySet());
+        assertEquals(List.of(3L), result.getMissing());
+    }
+
+    @Test
+    void getEmployeesByIds_WithAllIdsFilteredOut_DoesNotQuery() {
+        doReturn(true).when(idFilter).isMissingEmployee(any());
+
+        var responseEntity = service.getEmployeesByIds(List.of(1L, 2L));
+
+        var result = (MultiGetResult<Employee>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(List.of(1L, 2L), result.getMissing());
+        verifyNoInteractions(employeeRepository);
+    }
+}
@@ -4,13 +4,38 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.server.ResponseStatusException;
+import simple.cache.EntityCache;
+import simple.change.ChangeLog;
+import simple.counter.AggregateCounters;
+import simple.counter.CommentLikeCounter;
+import simple.counter.UniqueLikerCounter;
+import simple.dto.BulkItemResult;
+import simple.dto.IssueBulkItem;
+import simple.dto.KeysetPage;
+import simple.dto.MultiGetResult;
+import simple.dto.VersionStamp;
+import simple.entity.Change;
+import simple.entity.Comment;
 import simple.entity.Employee;
 import simple.entity.Issue;
+import simple.event.IssueEventHub;
+import simple.graph.FieldSelection;
+import simple.graph.GraphFetcher;
+import simple.graph.GraphType;
+import simple.id.IdFilter;
+import simple.repository.CommentRepository;
 import simple.repository.EmployeeRepository;
 import simple.repository.IssueRepository;
+import simple.search.IssueSearchIndex;
+import simple.search.TopCommentIndex;
+import simple.stream.EntityPublisher;
+import simple.stream.EntityStreamer;
 
 import java.util.*;
 
@@ -32,6 +57,45 @@ class IssueServiceTest {
     @Mock
     EmployeeRepository employeeRepository;
 
+    @Mock
+    CommentRepository commentRepository;
+
+    @Mock
+    IssueSearchIndex issueSearchIndex;
+
+    @Mock
+    EntityStreamer entityStreamer;
+
+    @Mock
+    EntityPublisher entityPublisher;
+
+    @Mock
+    UniqueLikerCounter uniqueLikerCounter;
+
+    @Mock
+    ChangeLog changeLog;
+
+    @Mock
+    AggregateCounters aggregateCounters;
+
+    @Mock
+    IdFilter idFilter;
+
+    @Mock
+    TopCommentIndex topCommentIndex;
+
+    @Mock
+    IssueEventHub issueEventHub;
+
+    @Mock
+    GraphFetcher graphFetcher;
+
+    @Mock
+    CommentLikeCounter commentLikeCounter;
+
+    @Spy
+    EntityCache entityCache = new EntityCache(100, 60, TransactionOperations.withoutTransaction());
+
     private Employee getExistingEmployee() {
         return Employee.builder()
                 .id(1L)
@@ -51,7 +115,6 @@ class IssueServiceTest {
 
         doReturn(employee).when(employeeService).getEmployeeById(employeeId);
         doReturn(issue).when(issueRepository).save(issue);
-        doReturn(employee).when(employeeRepository).save(employee);
 
         var responseEntity = issueService.createIssue(employeeId, issue);
 
@@ -60,7 +123,8 @@ class IssueServiceTest {
         assertEquals(issue, responseEntity.getBody());
 
         verify(issueRepository, times(1)).save(issue);
-        verify(employeeRepository, times(1)).save(employee);
+        verify(employeeRepository, never()).save(any());
+        assertSame(employee, issue.getEmployee());
     }
 
     @Test
@@ -213,6 +277,84 @@ class IssueServiceTest {
         assertEquals(existingIssue, result);
     }
 
+    @Test
+    void getIssueTag_WithWriteVisibleBeforeEviction_MatchesServedBody() {
+        var comment = Comment.builder().id(2L).version(0L).text("Text").build();
+        var issue = Issue.builder().id(1L).version(0L).title("Title").comments(List.of(comment)).build();
+        var edited = issue.toBuilder().version(1L).title("Edited").build();
+
+        doReturn(Optional.of(issue), Optional.of(edited)).when(issueRepository).findById(1L);
+
+        var cachedTag = issueService.getIssueTag(issueService.getIssueById(1L));
+        // the edit is committed, the cached issue is not evicted yet
+        var staleBody = issueService.getIssueById(1L);
+        assertEquals("Title", staleBody.getTitle());
+        assertEquals("1.0.1.1-1.0.2.2", cachedTag);
+        assertEquals(cachedTag, issueService.getIssueTag(staleBody));
+
+        entityCache.evictIssue(issue);
+        var freshBody = issueService.getIssueById(1L);
+        assertEquals("Edited", freshBody.getTitle());
+        assertEquals("1.1.1.1-1.0.2.2", issueService.getIssueTag(freshBody));
+    }
+
+    @Test
+    void getIssuesByIds_WithCachedAndMissingIds_LoadsOnlyMisses() {
+        var first = Issue.builder().id(1L).title("First").build();
+        var second = Issue.builder().id(2L).title("Second").build();
+
+        doReturn(Optional.of(first)).when(issueRepository).findById(1L);
+        doReturn(List.of(second)).when(issueRepository).findAllById(any());
+
+        issueService.getIssueById(1L);
+        var responseEntity = issueService.getIssuesByIds(List.of(2L, 1L, 3L, 2L));
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = (MultiGetResult<Issue>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(List.of(2L, 1L), new ArrayList<>(result.getItems().keySet()));
+        assertEquals("First", result.getItems().get(1L).getTitle());
+        assertEquals(List.of(3L), result.getMissing());
+        verify(issueRepository, times(1)).findAllById(List.of(2L, 3L));
+    }
+
+    @Test
+    void getIssuesByIds_WithManyIds_QueriesInChunks() {
+        var ids = new ArrayList<Long>();
+        for (long id = 1; id <= 1200; id++) {
+            ids.add(id);
+        }
+
+        doReturn(List.of()).when(issueRepository).findAllById(any());
+
+        var responseEntity = issueService.getIssuesByIds(ids);
+
+        var result = (MultiGetResult<Issue>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(1200, result.getMissing().size());
+        verify(issueRepository, times(3)).findAllById(any());
+    }
+
+    @Test
+    void getIssuesByIds_WithFilteredOutIds_DoesNotQuery() {
+        doReturn(true).when(idFilter).isMissingIssue(any());
+
+        var responseEntity = issueService.getIssuesByIds(List.of(1L, 2L));
+
+        var result = (MultiGetResult<Issue>) responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(List.of(1L, 2L), result.getMissing());
+        verifyNoInteractions(issueRepository);
+    }
+
+    @Test
+    void getIssuesByIds_WithoutIds_ReturnsBadRequestResponseEntity() {
+        var responseEntity = issueService.getIssuesByIds(List.of());
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(issueRepository);
+    }
+
     @Test
     void getIssueById_WithMissingIssue_ThrowsResponseStatusExceptionWithNotFoundStatus() {
         var id = 1L;
@@ -227,6 +369,19 @@ class IssueServiceTest {
         }
     }
 
+    @Test
+    void getIssueById_WithMissingIssueTwice_ThrowsSeparateExceptions() {
+        doReturn(true).when(idFilter).isMissingIssue(1L);
+
+        var first = assertThrows(ResponseStatusException.class, () -> issueService.getIssueById(1L));
+        first.addSuppressed(new IllegalStateException("Close failed"));
+        var second = assertThrows(ResponseStatusException.class, () -> issueService.getIssueById(1L));
+
+        assertNotSame(first, second);
+        assertEquals(0, second.getSuppressed().length);
+        assertEquals(0, second.getStackTrace().length);
+    }
+
     @Test
     void getIssueList_WithValidData_ReturnsOkResponseEntity() {
         var issueList = List.of(
@@ -346,6 +501,34 @@ class IssueServiceTest {
         assertTrue(Objects.requireNonNull(responseEntity.getBody()).isEmpty());
     }
 
+    @Test
+    void search_WithReadyIndex_ReturnsIndexedIssuesOrderedById() {
+        var query = "topic";
+        var issueList = List.of(
+                Issue.builder()
+                        .id(3L)
+                        .title("Topic")
+                        .description("Description")
+                        .build(),
+                Issue.builder()
+                        .id(2L)
+                        .title("Topic")
+                        .description("Description")
+                        .build()
+        );
+
+        doReturn(true).when(issueSearchIndex).isReady();
+        doReturn(List.of(2L, 3L)).when(issueSearchIndex).search(query);
+        doReturn(issueList).when(issueRepository).findAllById(List.of(2L, 3L));
+
+        var responseEntity = issueService.search(query);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(List.of(issueList.get(1), issueList.get(0)), responseEntity.getBody());
+        verify(issueRepository, never()).findAll();
+    }
+
     @Test
     void getEmployeeIssues_WhenExistingIssues_ReturnsOkResponseEntityList() {
         var id = 1L;
@@ -581,6 +764,30 @@ class IssueServiceTest {
         verify(issueRepository, times(1)).deleteById(id);
     }
 
+    @Test
+    void removeIssue_WithComments_RecordsTombstonesOfLoadedComments() {
+        var employee = Employee.builder().id(3L).build();
+        var existingIssue = Issue.builder()
+                .id(1L)
+                .title("Title")
+                .employee(employee)
+                .comments(List.of(Comment.builder().id(5L).build(), Comment.builder().id(6L).build()))
+                .build();
+
+        doReturn(Optional.of(existingIssue)).when(issueRepository).findById(1L);
+
+        var responseEntity = issueService.removeIssue(1L);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        verify(changeLog, times(1)).record(List.of(
+                Change.delete(Change.Type.COMMENT, 5L),
+                Change.delete(Change.Type.COMMENT, 6L),
+                Change.delete(Change.Type.ISSUE, 1L),
+                Change.upsert(Change.Type.EMPLOYEE, 3L)));
+        verify(uniqueLikerCounter, times(1)).removeIssue(1L, List.of(5L, 6L));
+        verifyNoInteractions(commentRepository);
+    }
+
     @Test
     void removeIssue_WithMissingIssue_ReturnsNotFoundResponseEntity() {
         var id = 1L;
@@ -596,4 +803,155 @@ class IssueServiceTest {
         verify(issueRepository, times(1)).findById(id);
         verify(issueRepository, times(0)).deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getIssuePage_WithMoreRows_ReturnsPageWithNextCursor() {
+        var rows = List.of(
+                Issue.builder().id(11L).title("Title").build(),
+                Issue.builder().id(12L).title("Title").build(),
+                Issue.builder().id(13L).title("Title").build()
+        );
+
+        doReturn(rows).when(issueRepository).findByIdGreaterThanOrderByIdAsc(10L, PageRequest.of(0, 3));
+
+        var responseEntity = issueService.getIssuePage(10L, 2);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var page = (KeysetPage<Issue>) responseEntity.getBody();
+        assertNotNull(page);
+        assertEquals(rows.subList(0, 2), page.getItems());
+        assertEquals(12L, page.getNext());
+    }
+
+    @Test
+    void getIssuePage_WithLastRows_ReturnsPageWithoutNextCursor() {
+        var rows = List.of(
+                Issue.builder().id(1L).title("Title").build()
+        );
+
+        doReturn(rows).when(issueRepository).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 101));
+
+        var responseEntity = issueService.getIssuePage(null, null);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var page = (KeysetPage<Issue>) responseEntity.getBody();
+        assertNotNull(page);
+        assertEquals(rows, page.getItems());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void getIssuePage_WithInvalidLimit_ReturnsBadRequestResponseEntity() {
+        var responseEntity = issueService.getIssuePage(null, 1001);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+
+        var errorResponse = (Map<String, String>) responseEntity.getBody();
+        assertNotNull(errorResponse);
+        assertEquals("The 'limit' param should be between 1 and 1000", errorResponse.get("error"));
+        verifyNoInteractions(issueRepository);
+    }
+
+    @Test
+    void createIssues_WithValidAndInvalidItems_ReturnsPerItemResults() {
+        var employee = getExistingEmployee();
+        var items = List.of(
+                new IssueBulkItem(1L, "Title", "description"),
+                new IssueBulkItem(2L, "Title", null),
+                new IssueBulkItem(1L, "", null),
+                new IssueBulkItem(null, "Title", null)
+        );
+        var saved = Issue.builder().id(7L).title("Title").description("description").employee(employee).build();
+
+        doReturn(List.of(employee)).when(employeeRepository).findAllById(Set.of(1L, 2L));
+        doReturn(List.of(saved)).when(issueRepository).saveAll(anyList());
+
+        var responseEntity = issueService.createIssues(items);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var results = (List<BulkItemResult>) responseEntity.getBody();
+        assertNotNull(results);
+        assertEquals(4, results.size());
+        assertEquals(7L, results.get(0).getId());
+        assertEquals(HttpStatus.NOT_FOUND.value(), results.get(1).getStatus());
+        assertEquals("The 'title' field must have at least then 1 character", results.get(2).getError());
+        assertEquals("The 'employeeId' param is required", results.get(3).getError());
+        verify(issueRepository, times(1)).saveAll(argThat((List<Issue> issues) ->
+                issues.size() == 1 && issues.get(0).getEmployee() == employee));
+        verify(employeeRepository, never()).save(any());
+        verify(issueSearchIndex, times(1)).indexIssue(saved);
+    }
+
+    @Test
+    void getIssueById_WithFields_ReturnsSelectedFields() {
+        Map<String, Object> issue = Map.of(Issue.ID_FIELD, 1L, Issue.TITLE_FIELD, "Title");
+        doReturn(issue).when(graphFetcher).findById(eq(GraphType.ISSUE), eq(1L), any(FieldSelection.class));
+
+        var responseEntity = issueService.getIssueById(1L, "title");
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(issue, responseEntity.getBody());
+        verifyNoInteractions(issueRepository);
+    }
+
+    @Test
+    void getIssueById_WithUnknownField_ReturnsBadRequestResponseEntity() {
+        var responseEntity = issueService.getIssueById(1L, "title,employee");
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(graphFetcher);
+    }
+
+    @Test
+    void getIssueById_WithFieldsAndMissingIssue_ThrowsResponseStatusExceptionWithNotFoundStatus() {
+        var exception = assertThrows(ResponseStatusException.class, () -> issueService.getIssueById(1L, "title"));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+
+    @Test
+    void getIssuePage_WithFields_ReturnsPageOfSelectedFields() {
+        List<Map<String, Object>> rows = List.of(Map.of(Issue.ID_FIELD, 1L), Map.of(Issue.ID_FIELD, 2L), Map.of(Issue.ID_FIELD, 3L));
+        doReturn(rows).when(graphFetcher).findPage(eq(GraphType.ISSUE), eq(0L), eq(3), any(FieldSelection.class));
+
+        var responseEntity = issueService.getIssuePage(null, 2, "id");
+
+        var page = (KeysetPage<Map<String, Object>>) responseEntity.getBody();
+        assertNotNull(page);
+        assertEquals(2, page.getItems().size());
+        assertEquals(2L, page.getNext());
+    }
+
+    @Test
+    void search_WithFieldsAndIndexNotReady_ProjectsMatchingIdsOnly() {
+        Map<String, Object> second = Map.of(Issue.ID_FIELD, 2L);
+        Map<String, Object> third = Map.of(Issue.ID_FIELD, 3L);
+        doReturn(false).when(issueSearchIndex).isReady();
+        doReturn(List.of(2L, 3L)).when(issueRepository).findIdsByText("%50\\%\\_off%");
+        doReturn(Map.of(3L, third, 2L, second)).when(graphFetcher)
+                .findByIds(eq(GraphType.ISSUE), eq(List.of(2L, 3L)), any(FieldSelection.class));
+
+        var responseEntity = issueService.search("50%_OFF", "id");
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(List.of(second, third), responseEntity.getBody());
+        verify(issueRepository, never()).findAll();
+    }
+
+    @Test
+    void getIssueProjectionTag_WithPendingLikes_ChangesTag() {
+        doReturn(new VersionStamp(1L, 1L, 1L, 1L)).when(issueRepository).findVersionStampById(1L);
+        doReturn(new VersionStamp(2L, 2L, 9L, 5L)).when(commentRepository).findVersionStampByIssueId(1L);
+        doReturn(0L, 7L).when(commentLikeCounter).getPendingLikesHash(1L);
+
+        String flushed = issueService.getIssueProjectionTag(1L);
+        String pending = issueService.getIssueProjectionTag(1L);
+
+        assertEquals(issueService.getIssueTag(1L), flushed);
+        assertNotEquals(flushed, pending);
+    }
+}
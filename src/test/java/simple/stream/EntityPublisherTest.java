@@ -0,0 +1,71 @@
+package simple.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static simple.stream.EntityPublisher.PAGE_SIZE;
+
+@ExtendWith(MockitoExtension.class)
+class EntityPublisherTest {
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    EntityPublisher entityPublisher;
+
+    private final AtomicInteger loadedPages = new AtomicInteger();
+
+    private BiFunction<Long, Pageable, List<Long>> ids(long count) {
+        return (after, pageable) -> {
+            loadedPages.incrementAndGet();
+            List<Long> page = new ArrayList<>();
+            for (long id = after + 1; id <= count && page.size() < pageable.getPageSize(); id++) {
+                page.add(id);
+            }
+            return page;
+        };
+    }
+
+    @Test
+    void keysetPages_WithSeveralPages_PublishesAllRowsInOrder() {
+        long count = PAGE_SIZE * 2 + 5;
+
+        List<Long> ids = entityPublisher.keysetPages(ids(count), Function.identity()).collectList().block();
+
+        assertEquals(count, ids.size());
+        assertEquals(1L, ids.get(0));
+        assertEquals(count, ids.get(ids.size() - 1));
+        assertEquals(3, loadedPages.get());
+    }
+
+    @Test
+    void keysetPages_WithFullLastPage_StopsOnEmptyPage() {
+        List<Long> ids = entityPublisher.keysetPages(ids(PAGE_SIZE), Function.identity()).collectList().block();
+
+        assertEquals(PAGE_SIZE, ids.size());
+        assertEquals(2, loadedPages.get());
+    }
+
+    @Test
+    void keysetPages_WithSmallDemand_LoadsOnlyFirstPage() {
+        Long first = entityPublisher.keysetPages(ids(PAGE_SIZE * 10), Function.identity())
+                .limitRequest(1)
+                .blockLast();
+
+        assertEquals(1L, first);
+        assertEquals(1, loadedPages.get());
+    }
+}
@@ -0,0 +1,112 @@
+package simple.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static simple.stream.EntityStreamer.CHUNK_SIZE;
+
+@ExtendWith(MockitoExtension.class)
+class EntityStreamerTest {
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    EntityStreamer entityStreamer;
+
+    private final AtomicBoolean rowsClosed = new AtomicBoolean();
+    private final TrackingOutputStream outputStream = new TrackingOutputStream();
+
+    private Stream<Map<String, Integer>> rows(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(id -> Map.of("id", id))
+                .onClose(() -> rowsClosed.set(true));
+    }
+
+    private String write(StreamingResponseBody body) throws Exception {
+        body.writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void ndjson_WithRows_WritesOneRecordPerLine() throws Exception {
+        String output = write(entityStreamer.ndjson(() -> rows(3)));
+
+        assertEquals("{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n", output);
+        assertTrue(rowsClosed.get());
+        assertFalse(outputStream.closed);
+    }
+
+    @Test
+    void ndjson_WithoutRows_WritesNothing() throws Exception {
+        String output = write(entityStreamer.ndjson(() -> rows(0)));
+
+        assertEquals("", output);
+        assertTrue(rowsClosed.get());
+    }
+
+    @Test
+    void jsonArray_WithRows_WritesOneArray() throws Exception {
+        String output = write(entityStreamer.jsonArray(() -> rows(3)));
+
+        assertEquals("[{\"id\":1},{\"id\":2},{\"id\":3}]", output);
+        assertTrue(rowsClosed.get());
+        assertFalse(outputStream.closed);
+    }
+
+    @Test
+    void jsonArray_WithoutRows_WritesEmptyArray() throws Exception {
+        String output = write(entityStreamer.jsonArray(() -> rows(0)));
+
+        assertEquals("[]", output);
+    }
+
+    @Test
+    void ndjson_WithSeveralChunks_ClearsPersistenceContextPerChunk() throws Exception {
+        String output = write(entityStreamer.ndjson(() -> rows(CHUNK_SIZE * 2 + 1)));
+
+        assertEquals(CHUNK_SIZE * 2 + 1, output.split("\n").length);
+        assertTrue(output.endsWith("{\"id\":" + (CHUNK_SIZE * 2 + 1) + "}\n"));
+        verify(entityManager, times(2)).clear();
+        assertTrue(outputStream.flushes >= 2);
+    }
+
+    private static final class TrackingOutputStream extends ByteArrayOutputStream {
+
+        private int flushes;
+        private boolean closed;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
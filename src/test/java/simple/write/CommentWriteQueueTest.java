@@ -0,0 +1,182 @@
+package simple.write;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+import simple.entity.Comment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static simple.service.ServiceUtils.afterCommit;
+
+class CommentWriteQueueTest {
+
+    private static final PlatformTransactionManager TRANSACTION_MANAGER = new AbstractPlatformTransactionManager() {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    };
+
+    private final AtomicLong ids = new AtomicLong();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    private CommentWriteQueue queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void submit_WithDisabledMode_ReturnsNull() {
+        queue = newQueue(false, 10, 5);
+        queue.start(this::save);
+
+        assertNull(queue.submit(comment("Text")));
+        assertEquals(false, queue.getStats().get("enabled"));
+    }
+
+    @Test
+    void submit_WithManyComments_CommitsThemInFewerBatches() {
+        CountDownLatch release = new CountDownLatch(1);
+        queue = newQueue(true, 1000, 50);
+        queue.start(comments -> {
+            await(release);
+            return save(comments);
+        });
+
+        List<CompletableFuture<Comment>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(queue.submit(comment("Text " + i)));
+        }
+        release.countDown();
+
+        for (int i = 0; i < results.size(); i++) {
+            Comment saved = results.get(i).join();
+            assertNotNull(saved.getId());
+            assertEquals("Text " + i, saved.getText());
+        }
+        assertTrue(batchSizes.size() < results.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 50));
+        var stats = queue.getStats();
+        assertEquals(200L, stats.get("committed"));
+        assertEquals((long) batchSizes.size(), stats.get("batches"));
+        assertTrue(queue.getPrometheusText().contains("app_comment_committed_total 200"));
+    }
+
+    @Test
+    void submit_WithFailingComment_FailsOnlyThatComment() {
+        CountDownLatch release = new CountDownLatch(1);
+        queue = newQueue(true, 1000, 50);
+        queue.start(comments -> {
+            await(release);
+            if (comments.stream().anyMatch(comment -> comment.getText().equals("Bad"))) {
+                throw new IllegalStateException("Constraint violation");
+            }
+            return save(comments);
+        });
+
+        var good = queue.submit(comment("Good"));
+        var bad = queue.submit(comment("Bad"));
+        release.countDown();
+
+        assertNotNull(good.join().getId());
+        assertThrows(CompletionException.class, bad::join);
+        assertEquals(1L, queue.getStats().get("committed"));
+        assertEquals(1L, queue.getStats().get("failed"));
+    }
+
+    @Test
+    void submit_WithFailingPostCommitHook_DoesNotInsertAgain() {
+        CountDownLatch release = new CountDownLatch(1);
+        queue = new CommentWriteQueue(true, 1000, 50, 5, new TransactionTemplate(TRANSACTION_MANAGER));
+        queue.start(comments -> {
+            await(release);
+            afterCommit(() -> {
+                throw new IllegalStateException("Change log is down");
+            });
+            return save(comments);
+        });
+
+        var first = queue.submit(comment("First"));
+        var second = queue.submit(comment("Second"));
+        release.countDown();
+
+        assertNotNull(first.join().getId());
+        assertNotNull(second.join().getId());
+        assertEquals(2, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(2L, queue.getStats().get("committed"));
+        assertEquals(0L, queue.getStats().get("failed"));
+    }
+
+    @Test
+    void submit_WithFullQueue_ReturnsNull() {
+        CountDownLatch release = new CountDownLatch(1);
+        queue = newQueue(true, 1, 1);
+        queue.start(comments -> {
+            await(release);
+            return save(comments);
+        });
+
+        List<CompletableFuture<Comment>> results = new ArrayList<>();
+        CompletableFuture<Comment> result;
+        while ((result = queue.submit(comment("Text"))) != null) {
+            results.add(result);
+        }
+        release.countDown();
+
+        results.forEach(CompletableFuture::join);
+        assertEquals(1L, queue.getStats().get("rejected"));
+    }
+
+    private CommentWriteQueue newQueue(boolean enabled, int queueCapacity, int maxBatchSize) {
+        return new CommentWriteQueue(enabled, queueCapacity, maxBatchSize, 5, TransactionOperations.withoutTransaction());
+    }
+
+    private List<Comment> save(List<Comment> comments) {
+        batchSizes.add(comments.size());
+        comments.forEach(comment -> comment.setId(ids.incrementAndGet()));
+        return comments;
+    }
+
+    private static Comment comment(String text) {
+        return Comment.builder()
+                .text(text)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}